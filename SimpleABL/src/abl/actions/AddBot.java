@@ -1,7 +1,8 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
+import game.Log;
+import game.World;
 
 import java.awt.Point;
 import java.util.Random;
@@ -12,20 +13,33 @@ import java.util.Random;
  */
 public class AddBot extends BaseAction {
 
+	/** random trust levels, shared by all instances */
+	private static final Random random = new Random();
+
+	public AddBot() {
+	}
+	
+	/**
+	 * Creates the action for adding bots to the given world.
+	 */
+	public AddBot(World world) {
+		super(world);
+	}
+
 	/**
 	 * Args:
 	 *
 	 */
-	public void execute(Object[] args) {
-		Bot b = new Bot();
-		Random rn = new Random();
-		int x = rn.nextInt(181) - 80;	// random number [-80,100]
-		Point dimensions = GameEngine.getInstance().getDimensions();
+	protected void act(Object[] args) {
+		World world = getWorld();
+		Bot b = world.createBot();
+		int x = random.nextInt(181) - 80;	// random number [-80,100]
+		Point dimensions = world.getDimensions();
 		
 		//TODO set location? - do we want this to be passed in? generated randomly?
 		b.setLocation(new Point(dimensions.x/3, dimensions.y/3));
 		b.setTrust(x);
-		System.out.println(b.getTrust());
-		GameEngine.getInstance().getBots().add(b);
+		Log.debug("Added bot %d with trust %d", b.getId(), b.getTrust());
+		world.addBot(b);
 	}
 }
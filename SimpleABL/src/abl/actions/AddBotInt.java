@@ -1,6 +1,5 @@
 package abl.actions;
 
-import game.GameEngine;
 
 /**
  * Adds a bot to the game engine
@@ -12,8 +11,8 @@ public class AddBotInt extends BaseAction {
 	 * args[0] - count of bots
 	 * args[1] - max number of bots produced
 	 */
-	public void execute(Object[] args) {
+	protected void act(Object[] args) {
 		int modArg = (Integer)args[0] % (Integer)args[1];
-		GameEngine.getInstance().addBots(modArg);
+		getWorld().addBots(modArg);
 	}
 }
\ No newline at end of file
@@ -1,17 +1,74 @@
 package abl.actions;
 
+import abl.runtime.BehavingEntity;
 import abl.runtime.PrimitiveAction;
+import game.AgentEvents;
+import game.Histogram;
+import game.Metrics;
+import game.World;
 /**
  * For this toy domain, all actions complete immediately. 
  * 
+ * The execution time of every act is recorded in the abl.act timer and in a
+ * timer of the action class, and as a flight recorder event.
+ * 
  * @author Ben Weber 3-7-11
  */
 public abstract class BaseAction extends PrimitiveAction {
 
+	/** latency of all acts */
+	private static final Histogram ActTime = Metrics.timer("abl.act");
+
+	/** latency of the acts of each action class */
+	private static final ClassValue<Histogram> ActTimes = new ClassValue<Histogram>() {
+		protected Histogram computeValue(Class<?> type) {
+			return Metrics.timer("abl.act." + type.getSimpleName());
+		}
+	};
+
+	/** the world to act on, or null for the world of the executing agent */
+	private World world;
+
+	/**
+	 * Creates an action that acts on the world of the executing agent.
+	 */
+	public BaseAction() {
+	}
+
+	/**
+	 * Creates an action that acts on the given world, for use outside of an agent.
+	 */
+	public BaseAction(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Returns the world this action acts on.
+	 */
+	protected World getWorld() {
+		if (world != null) {
+			return world;
+		}
+		return World.of(BehavingEntity.getBehavingEntity());
+	}
+
+	/**
+	 * Performs the physical act and records its execution time.
+	 */
+	public final void execute(Object[] args) {
+		Object event = AgentEvents.beginAct();
+		long start = System.nanoTime();
+		act(args);
+		long time = System.nanoTime() - start;
+		AgentEvents.endAct(event, getClass());
+		ActTime.record(time);
+		ActTimes.get(getClass()).record(time);
+	}
+
 	/**  
 	 * Performs the physical act. 
 	 */
-	abstract public void execute(Object[] args);
+	abstract protected void act(Object[] args);
 
 	/**
 	 * Returns that the action has completed successfully. 
@@ -3,7 +3,6 @@ package abl.actions;
 import java.awt.Point;
 
 import game.Bot;
-import game.GameEngine;
 
 public class ChangeTrust extends BaseAction {
 	/**
@@ -14,14 +13,12 @@ public class ChangeTrust extends BaseAction {
 	 *  - 1: amount to change trust
 	 *  - 2: Trust threshold that is needed to activate
 	 */
-	public void execute(Object[] args) {
+	protected void act(Object[] args) {
 		int bot_ID = (Integer)args[0];
-		for(Bot b:GameEngine.getInstance().getBots()) {
-
-			if(b.getId() == bot_ID) {
-				changeTrust(b, (Integer)args[1]);
-				b.setTrustUpdated(true);
-			}
+		Bot b = getWorld().getBot(bot_ID);
+		if (b != null) {
+			changeTrust(b, (Integer)args[1]);
+			b.setTrustUpdated(getWorld().getTrustRound());
 		}
 
 	}
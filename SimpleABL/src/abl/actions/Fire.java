@@ -1,7 +1,7 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
+import game.World;
 
 import java.awt.Point;
 /**
@@ -16,14 +16,14 @@ public class Fire extends BaseAction {
 	 *  - 1: target y position
 	 *  - 2: id
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (Integer)args[2]) {
-				GameEngine.getInstance().fireBullet(
-						new Point((int)(b.getLocation().getX()), (int)(b.getLocation().getY())), 
-						new Point((Integer)args[0], (Integer)args[1]));					
-				b.setFiredCheck(true);
-			}
+	protected void act(Object[] args) {
+		World world = getWorld();
+		Bot b = world.getBot((Integer)args[2]);
+		if (b != null) {
+			world.fireBullet(
+					new Point((int)(b.getLocation().getX()), (int)(b.getLocation().getY())), 
+					new Point((Integer)args[0], (Integer)args[1]));					
+			b.setFiredCheck(world.getFireRound());
 		}
 	}
 }
@@ -0,0 +1,27 @@
+package abl.actions;
+
+import game.Bot;
+import game.World;
+
+import java.awt.Point;
+/**
+ * Moves a bot along the shortest path around the walls towards the player.
+ */
+public class FollowFlow extends BaseAction {
+
+	/**
+	 * Sets the trajectory of the bot to the next free step on its path to the player.
+	 * args[0] - bot id
+	 * args[1] - distance to keep from other bots
+	 * args[2] - distance to keep from the player
+	 */
+	protected void act(Object[] args) {
+		World world = getWorld();
+		Bot b = world.getBot((Integer)args[0]);
+		if (b != null) {
+			Point trajectory = world.getSteering().followFlow(b, (Integer)args[1], (Integer)args[2]);
+			b.setTrajectory(trajectory);
+			world.markMoved(b);
+		}
+	}
+}
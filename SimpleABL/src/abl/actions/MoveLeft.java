@@ -1,7 +1,7 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
+import game.World;
 
 import java.awt.Point;
 /**
@@ -15,11 +15,10 @@ public class MoveLeft extends BaseAction {
 	 * Sets the trajectory of the player to move left.
 	 * args[0] - bot id
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (Integer)args[0]) {
-				b.setTrajectory(new Point(-GameEngine.BotSpeed, 0));
-			}
+	protected void act(Object[] args) {
+		Bot b = getWorld().getBot((Integer)args[0]);
+		if (b != null) {
+			b.setTrajectory(new Point(-World.BotSpeed, 0));
 		}
 	}
 }
@@ -1,7 +1,7 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
+import game.World;
 
 import java.awt.Point;
 /**
@@ -16,26 +16,25 @@ public class MoveTo extends BaseAction {
 	 * args[1] - target y direction
 	 * args[2] - id
 	 */
-	public void execute(Object[] args) {
+	protected void act(Object[] args) {
 		int x = 0, y = 0;
-		int botSpeed = GameEngine.BotSpeed;
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (Integer)args[2]) {
-				Point target = b.getLocation();
-				if(target.getX() - (Integer)args[0] > botSpeed) {
-					x = -botSpeed;
-				} else if (target.getX() - (Integer)args[0] < -botSpeed){
-					x = botSpeed;
-				}
-				
-				if(target.getY() - (Integer)args[1] > botSpeed) {
-					y = -botSpeed;
-				} else if(target.getY() - (Integer)args[1] < -botSpeed) {
-					y = botSpeed;
-				}
-				
-				b.setTrajectory(new Point(x,y));
+		int botSpeed = World.BotSpeed;
+		Bot b = getWorld().getBot((Integer)args[2]);
+		if (b != null) {
+			Point target = b.getLocation();
+			if(target.getX() - (Integer)args[0] > botSpeed) {
+				x = -botSpeed;
+			} else if (target.getX() - (Integer)args[0] < -botSpeed){
+				x = botSpeed;
 			}
+			
+			if(target.getY() - (Integer)args[1] > botSpeed) {
+				y = -botSpeed;
+			} else if(target.getY() - (Integer)args[1] < -botSpeed) {
+				y = botSpeed;
+			}
+			
+			b.setTrajectory(new Point(x,y));
 		}
 	}
 }
\ No newline at end of file
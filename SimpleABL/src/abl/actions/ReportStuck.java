@@ -0,0 +1,15 @@
+package abl.actions;
+
+/**
+ * Records that a bot is stuck, for the statistics of the world.
+ */
+public class ReportStuck extends BaseAction {
+
+	/**
+	 * Args:
+	 *  - 0: bot id
+	 */
+	protected void act(Object[] args) {
+		getWorld().countStuckEvent();
+	}
+}
@@ -1,8 +1,6 @@
 
 package abl.actions;
 
-import game.Bot;
-import game.GameEngine;
 
 import java.awt.Color;
 import java.awt.Point;
@@ -14,10 +12,8 @@ public class ResetFired extends BaseAction {
 	/**
 	 * Args:
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			b.setFiredCheck(false);
-		}
+	protected void act(Object[] args) {
+		getWorld().nextFireRound();
 	}
 }
 
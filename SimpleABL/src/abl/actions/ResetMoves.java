@@ -1,12 +1,13 @@
 package abl.actions;
 
-import game.Bot;
-import game.GameEngine;
 
 import java.awt.Point;
 /**
  * Reset variables that keep track of which bots have moved 
  * 
+ * Note: the game engine starts a new move round every tick, together with the decision
+ * budget for it, so this act no longer does anything. It stays registered for agents
+ * that still call it.
  */
 public class ResetMoves extends BaseAction {
 
@@ -14,9 +15,6 @@ public class ResetMoves extends BaseAction {
 	 * Args:
 	 *
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			b.setMoved(false);
-		}
+	protected void act(Object[] args) {
 	}
 }
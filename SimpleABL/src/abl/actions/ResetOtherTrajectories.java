@@ -1,7 +1,6 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
 
 import java.awt.Point;
 /**
@@ -16,8 +15,8 @@ public class ResetOtherTrajectories extends BaseAction {
 	 *  - 0 : int id
 	 *
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
+	protected void act(Object[] args) {
+		for(Bot b:getWorld().getBots()) {
 			if(b.getId() != (Integer)args[0]) {
 				b.setTrajectory(new Point(0,0));
 			}
@@ -1,25 +1,19 @@
 
 package abl.actions;
 
-import game.Bot;
-import game.GameEngine;
 
 import java.awt.Color;
 import java.awt.Point;
 /**
- * Sets color of the chaser. 
+ * Reset variables that keep track of which bots have updated their trust or been shot 
  */
 public class ResetTrustUpdated extends BaseAction {
 
 	/**
-	 * Sets color of the bot.
-	 * args[0] - boolean
+	 * Args:
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			b.setTrustUpdated(false);
-			b.setShot(false);
-		}
+	protected void act(Object[] args) {
+		getWorld().nextTrustRound();
 	}
 }
 
@@ -1,7 +1,6 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
 
 import java.awt.Color;
 import java.awt.Point;
@@ -17,12 +16,11 @@ public class SetColor extends BaseAction {
 	 * args[2] - int green
 	 * args[3] - int id
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (Integer)args[3]) {
-				Color botColor = b.getColor();
-				b.setColor(new Color((botColor.getRed()+1)%255, (botColor.getGreen()+1)%255, (botColor.getBlue()+1)%255));
-			}
+	protected void act(Object[] args) {
+		Bot b = getWorld().getBot((Integer)args[3]);
+		if (b != null) {
+			Color botColor = b.getColor();
+			b.setColor(new Color((botColor.getRed()+1)%255, (botColor.getGreen()+1)%255, (botColor.getBlue()+1)%255));
 		}
 	}
 }
@@ -0,0 +1,15 @@
+package abl.actions;
+
+/**
+ * Sets the width of the distance bands used to decide how often bots are reasoned about.
+ */
+public class SetDetailBand extends BaseAction {
+
+	/**
+	 * Args:
+	 *  - 0: band width in pixels, 0 makes every bot decide every round
+	 */
+	protected void act(Object[] args) {
+		getWorld().getLodScheduler().setBand((Integer)args[0]);
+	}
+}
@@ -0,0 +1,15 @@
+package abl.actions;
+
+/**
+ * Sets the radius around the player in which the interest managed sensors report bots.
+ */
+public class SetInterestRadius extends BaseAction {
+
+	/**
+	 * Args:
+	 *  - 0: radius in pixels, 0 reports all bots
+	 */
+	protected void act(Object[] args) {
+		getWorld().setInterestRadius((Integer)args[0]);
+	}
+}
@@ -1,7 +1,6 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
 
 import java.awt.Point;
 import java.util.ArrayList;
@@ -21,16 +20,14 @@ public class SetTrajectory extends BaseAction {
 	 *  - 1: int: x
 	 *  - 2: int: y
 	 */
-	public void execute(Object[] args) {
+	protected void act(Object[] args) {
 		
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (Integer)args[0]) {
-					//b.setTrajectory(calcTrajectory(b.getX(), b.getY(), (Integer)args[1],(Integer)args[2]));
-				b.setTrajectory(new Point((Integer)args[1],(Integer)args[2]));
-			
-				b.setMoved(true);
-				return;
-			}
+		Bot b = getWorld().getBot((Integer)args[0]);
+		if (b != null) {
+				//b.setTrajectory(calcTrajectory(b.getX(), b.getY(), (Integer)args[1],(Integer)args[2]));
+			b.setTrajectory(new Point((Integer)args[1],(Integer)args[2]));
+		
+			getWorld().markMoved(b);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package abl.actions;
+
+import game.Bot;
+import game.World;
+
+import java.awt.Point;
+/**
+ * Steers a bot towards a target while avoiding other bots and walls.
+ */
+public class SteerTowards extends BaseAction {
+
+	/**
+	 * Sets the trajectory of the bot to the best free direction towards the target.
+	 * args[0] - bot id
+	 * args[1] - target x position
+	 * args[2] - target y position
+	 * args[3] - distance to keep from other bots
+	 * args[4] - distance to keep from the target
+	 */
+	protected void act(Object[] args) {
+		World world = getWorld();
+		Bot b = world.getBot((Integer)args[0]);
+		if (b != null) {
+			Point trajectory = world.getSteering().steer(b,
+					(Integer)args[1], (Integer)args[2], (Integer)args[3], (Integer)args[4]);
+			b.setTrajectory(trajectory);
+			world.markMoved(b);
+		}
+	}
+}
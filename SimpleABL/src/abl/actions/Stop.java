@@ -1,7 +1,6 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
 
 import java.awt.Point;
 /**
@@ -15,11 +14,10 @@ public class Stop extends BaseAction {
 	 * Stops the chaser.
 	 * args[0] - bot id
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (int)args[0]) {
-				b.setTrajectory(new Point(0, 0));
-			}
+	protected void act(Object[] args) {
+		Bot b = getWorld().getBot((Integer)args[0]);
+		if (b != null) {
+			b.setTrajectory(new Point(0, 0));
 		}
 	}
 }
@@ -1,7 +1,6 @@
 package abl.actions;
 
 import game.Bot;
-import game.GameEngine;
 
 import java.awt.Point;
 /**
@@ -15,13 +14,11 @@ public class StopWandering extends BaseAction {
 	 * Picks new point for bot to wander to
 	 * args[0] - bot id
 	 */
-	public void execute(Object[] args) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == (Integer)args[0]) {
-				b.setWandering(false);
-				b.setMoved(true);
-				return;
-			}
+	protected void act(Object[] args) {
+		Bot b = getWorld().getBot((Integer)args[0]);
+		if (b != null) {
+			b.setWandering(false);
+			getWorld().markMoved(b);
 		}
 	}
 }
@@ -5,7 +5,8 @@ import abl.compiler.Abl;
  * Utility class for running the ABL compiler.
  * 
  * Note: if the debug mode is enabled, the generated source code will include 
- * additional code for displaying a debug GUI.
+ * additional code for displaying a debug GUI. To watch the behavior tree of an
+ * agent compiled without it, use the AbtInspector and AbtViewer.
  * 
  * Note: ANT can also be used for performing this task.
  * 
@@ -1,37 +1,123 @@
 package abl.sensors;
 
 import game.Bot;
-import game.GameEngine;
+import game.ChangeLog;
+import game.ChangeSet;
+import game.World;
 import abl.runtime.BehavingEntity;
 import abl.wmes.BlackBoardWME;
-import abl.wmes.BotWME;
 
+import java.awt.Point;
+import java.util.List;
 import java.util.Map;
 import java.util.Hashtable;
 
 /**
- * Adds a BlackBoardWME object to working memory when sense is invoked.
- * 
+ * Keeps a BlackBoardWME object in working memory.
+ *
+ * The sensor reads the change log of the world and only updates the locations of the
+ * bots that moved since it last sensed, so sensing an unchanged world does no work.
+ * The map of locations is shared with the WME, which iterates it while the agent
+ * evaluates conditions, so a sense applies its changes under the lock of the map.
  */
 public class BlackBoardSensor extends SerialSensor {
 
 	/**
-	 * Adds a BlackBoardWME to working memory and deletes the old BlackBoard WME in memory 
+	 * Black board kept by the sensor for an agent.
+	 */
+	private static class State {
+
+		/** the black board in working memory */
+		BlackBoardWME wme;
+
+		/** locations of the bots on the black board by id, changed under its lock */
+		final Map<Integer, Point> bots = new Hashtable<Integer, Point>();
+
+		/** changes since the last sense */
+		final ChangeSet changes = new ChangeSet();
+
+		/** version of the world the black board reflects, -1 before the first sense */
+		long version = -1;
+	}
+
+	/**
+	 * Applies the changes of the world since the last sense to the BlackBoardWME in working memory.
 	 */
 	public void sense() {
- 
-		BehavingEntity.getBehavingEntity().deleteAllWMEClass("BlackBoardWME");
+		State state = getState(State::new);
+		synchronized (state) {
+			BehavingEntity entity = BehavingEntity.getBehavingEntity();
+			World world = getWorld();
+			ChangeLog log = world.getChangeLog();
+			if (log.getVersion() == state.version) {
+				return;
+			}
+
+			ChangeSet changes = state.changes;
+			Map<Integer, Point> bots = state.bots;
+			changes.clear();
+			if (!log.read(state.version, changes)) {
+				entity.deleteAllWMEClass("BlackBoardWME");
+				synchronized (bots) {
+					bots.clear();
+					fill(bots, world);
+				}
+				state.wme = new BlackBoardWME(world, bots, world.getPlayerLocation());
+				entity.addWME(state.wme);
+			}
+			else {
+				if (changes.isPlayerMoved()) {
+					state.wme.setPlayerLocation(world.getPlayerLocation());
+				}
+
+				synchronized (bots) {
+					if (changes.isPlayerMoved() && dependsOnPlayer(world)) {
+						bots.clear();
+						fill(bots, world);
+					}
 
-		Map bots = new Hashtable();
-		
-		for(Bot b : GameEngine.getInstance().getBots()) {
+					for (int id : changes.getBots()) {
+						Bot b = world.getBot(id);
+						if (b == null || !isSensed(world, b)) {
+							bots.remove(id);
+						}
+						else {
+							bots.put(id, b.getLocation());
+						}
+					}
+				}
+			}
+			state.version = changes.getVersion();
+		}
+	}
+
+	/**
+	 * Stores the locations of all sensed bots.
+	 */
+	private void fill(Map<Integer, Point> bots, World world) {
+		for(Bot b : sensedBots(world)) {
 			bots.put(b.getId(), b.getLocation());
-		}//store location of all bots
-		
-		
-		BehavingEntity.getBehavingEntity().addWME(
-				new BlackBoardWME(bots, GameEngine.getInstance().getPlayerLocation()));
-		
-		
+		}
+	}
+
+	/**
+	 * Returns the bots to store on the black board.
+	 */
+	protected List<Bot> sensedBots(World world) {
+		return world.getBots();
+	}
+
+	/**
+	 * Should the bot be on the black board?
+	 */
+	protected boolean isSensed(World world, Bot b) {
+		return true;
+	}
+
+	/**
+	 * Does the set of sensed bots change when the player moves?
+	 */
+	protected boolean dependsOnPlayer(World world) {
+		return false;
 	}
 }
@@ -1,29 +1,164 @@
 package abl.sensors;
 
 import game.Bot;
-import game.GameEngine;
+import game.ChangeLog;
+import game.ChangeSet;
+import game.World;
 import abl.runtime.BehavingEntity;
 import abl.wmes.BotWME;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
- * Adds a ChaserWME object to working memory when sense in invoked.
+ * Keeps a BotWME object in working memory for each sensed bot.
+ *
+ * The sensor reads the change log of the world and only updates the elements of
+ * the bots that changed since it last sensed, so sensing an unchanged world does no
+ * work. The round flags of the elements are computed from the round numbers of the
+ * world when they are read, so starting a round changes nothing in working memory.
+ * Working memory is rebuilt from scratch the first time and whenever the sensor fell
+ * too far behind the log.
  * 
  * @author Ben Weber 3-7-11
  */
 public class BotSensor extends SerialSensor {
 
 	/**
-	 * Adds a Bot WME to working memory of the agent and deletes previous chaser WMEs in memory.
+	 * Working memory kept by the sensor for an agent.
+	 */
+	private static class State {
+
+		/** elements in working memory by bot id */
+		final Map<Integer, BotWME> wmes = new HashMap<Integer, BotWME>();
+
+		/** changes since the last sense */
+		final ChangeSet changes = new ChangeSet();
+
+		/** version of the world working memory reflects, -1 before the first sense */
+		long version = -1;
+	}
+
+	/**
+	 * Applies the changes of the world since the last sense to the Bot WMEs in working memory.
 	 */
 	public void sense() {
- 
-		BehavingEntity.getBehavingEntity().deleteAllWMEClass("BotWME");
-		for(Bot b : GameEngine.getInstance().getBots()) {
-			BehavingEntity.getBehavingEntity().addWME(
-					new BotWME(b.getLocation(), b.getTrajectory(), 
-							   b.getId(), b.getColor(), b.getFormPos(), 
-							   b.getTrust(), b.isMoved(), b.firedCheck(), 
-							   b.isTrustUpdated(), b.isShot(), b.isWandering(), b.getWanderingTarget()));
+		State state = getState(State::new);
+		synchronized (state) {
+			BehavingEntity entity = BehavingEntity.getBehavingEntity();
+			World world = getWorld();
+			ChangeLog log = world.getChangeLog();
+			if (log.getVersion() == state.version) {
+				return;
+			}
+
+			ChangeSet changes = state.changes;
+			changes.clear();
+			if (!log.read(state.version, changes)) {
+				rebuild(state.wmes, entity, world);
+			}
+			else if (changes.isPlayerMoved() && dependsOnPlayer(world)) {
+				// the set of sensed bots changed
+				resync(state.wmes, entity, world);
+			}
+			else {
+				for (int id : changes.getBots()) {
+					apply(state.wmes, entity, world, id);
+				}
+			}
+			state.version = changes.getVersion();
 		}
-		
+	}
+
+	/**
+	 * Replaces all Bot WMEs in working memory with ones for the currently sensed bots.
+	 */
+	private void rebuild(Map<Integer, BotWME> wmes, BehavingEntity entity, World world) {
+		entity.deleteAllWMEClass("BotWME");
+		wmes.clear();
+		for(Bot b : sensedBots(world)) {
+			add(wmes, entity, world, b);
+		}
+	}
+
+	/**
+	 * Updates the Bot WMEs of all sensed bots, adding and removing elements as needed.
+	 */
+	private void resync(Map<Integer, BotWME> wmes, BehavingEntity entity, World world) {
+		Set<Integer> sensed = new HashSet<Integer>();
+		for(Bot b : sensedBots(world)) {
+			sensed.add(b.getId());
+			BotWME wme = wmes.get(b.getId());
+			if (wme == null) {
+				add(wmes, entity, world, b);
+			}
+			else {
+				update(wme, b);
+			}
+		}
+
+		Iterator<Map.Entry<Integer, BotWME>> entries = wmes.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<Integer, BotWME> entry = entries.next();
+			if (!sensed.contains(entry.getKey())) {
+				entity.deleteWME(entry.getValue());
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * Adds, updates or removes the Bot WME of a bot that changed.
+	 */
+	private void apply(Map<Integer, BotWME> wmes, BehavingEntity entity, World world, int id) {
+		Bot b = world.getBot(id);
+		BotWME wme = wmes.get(id);
+		if (b == null || !isSensed(world, b)) {
+			if (wme != null) {
+				entity.deleteWME(wme);
+				wmes.remove(id);
+			}
+		}
+		else if (wme == null) {
+			add(wmes, entity, world, b);
+		}
+		else {
+			update(wme, b);
+		}
+	}
+
+	private void add(Map<Integer, BotWME> wmes, BehavingEntity entity, World world, Bot b) {
+		BotWME wme = new BotWME(world, b);
+		wmes.put(b.getId(), wme);
+		entity.addWME(wme);
+	}
+
+	private void update(BotWME wme, Bot b) {
+		wme.update(b);
+	}
+
+	/**
+	 * Returns the bots to add to working memory.
+	 */
+	protected List<Bot> sensedBots(World world) {
+		return world.getBots();
+	}
+
+	/**
+	 * Should the bot be in working memory?
+	 */
+	protected boolean isSensed(World world, Bot b) {
+		return true;
+	}
+
+	/**
+	 * Does the set of sensed bots change when the player moves?
+	 */
+	protected boolean dependsOnPlayer(World world) {
+		return false;
 	}
 }
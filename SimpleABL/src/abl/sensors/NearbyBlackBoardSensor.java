@@ -0,0 +1,57 @@
+package abl.sensors;
+
+import game.Bot;
+import game.World;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds a BlackBoardWME object to working memory holding only the bots near the player.
+ *
+ * The black board covers the interest radius plus a margin, so the collision tests of
+ * the bots reported by the NearbyBotSensor still see their neighbors outside of the
+ * radius. The radius is the interest radius of the world, 0 reports all bots.
+ */
+public class NearbyBlackBoardSensor extends BlackBoardSensor {
+
+	/** extra distance covered beyond the interest radius (in pixels) */
+	public static final int Margin = 4*Bot.Size;
+
+	/**
+	 * Returns the bots within the interest radius of the player plus the margin.
+	 */
+	protected List<Bot> sensedBots(World world) {
+		int r = world.getInterestRadius();
+		if (r <= 0) {
+			return world.getBots();
+		}
+
+		Point player = world.getPlayerLocation();
+		return world.getBotsNear(player.x, player.y, r + Margin, new ArrayList<Bot>());
+	}
+
+	/**
+	 * Is the bot within the interest radius of the player plus the margin?
+	 */
+	protected boolean isSensed(World world, Bot b) {
+		int r = world.getInterestRadius();
+		if (r <= 0) {
+			return true;
+		}
+
+		Point player = world.getPlayerLocation();
+		long dx = b.getX() - player.x;
+		long dy = b.getY() - player.y;
+		long reach = r + Margin;
+		return dx*dx + dy*dy <= reach*reach;
+	}
+
+	/**
+	 * The sensed bots change with the location of the player, unless all bots are sensed.
+	 */
+	protected boolean dependsOnPlayer(World world) {
+		return world.getInterestRadius() > 0;
+	}
+}
@@ -0,0 +1,53 @@
+package abl.sensors;
+
+import game.Bot;
+import game.World;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds BotWME objects to working memory only for the bots within an interest radius of the player.
+ *
+ * The radius is the interest radius of the world, 0 reports all bots. Bots outside of
+ * the radius are not reasoned about and keep their last trajectory.
+ */
+public class NearbyBotSensor extends BotSensor {
+
+	/**
+	 * Returns the bots within the interest radius of the player.
+	 */
+	protected List<Bot> sensedBots(World world) {
+		int r = world.getInterestRadius();
+		if (r <= 0) {
+			return world.getBots();
+		}
+
+		Point player = world.getPlayerLocation();
+		return world.getBotsNear(player.x, player.y, r, new ArrayList<Bot>());
+	}
+
+	/**
+	 * Is the bot within the interest radius of the player?
+	 */
+	protected boolean isSensed(World world, Bot b) {
+		int r = world.getInterestRadius();
+		if (r <= 0) {
+			return true;
+		}
+
+		Point player = world.getPlayerLocation();
+		long dx = b.getX() - player.x;
+		long dy = b.getY() - player.y;
+		long reach = r;
+		return dx*dx + dy*dy <= reach*reach;
+	}
+
+	/**
+	 * The sensed bots change with the location of the player, unless all bots are sensed.
+	 */
+	protected boolean dependsOnPlayer(World world) {
+		return world.getInterestRadius() > 0;
+	}
+}
@@ -1,22 +1,54 @@
 package abl.sensors;
 
-import game.GameEngine; 
+import game.ChangeLog;
+import game.ChangeSet;
+import game.World;
 import abl.runtime.BehavingEntity;
 import abl.wmes.PlayerWME;
 /**
  * Adds a PlayerWME object to working memory when sense in invoked.
+ *
+ * The element is only replaced if the player moved or changed direction since the last sense.
  * 
  * @author Ben Weber 3-7-11
  */
 public class PlayerSensor extends SerialSensor {
 
+	/**
+	 * Change tracking kept by the sensor for an agent.
+	 */
+	private static class State {
+
+		/** changes since the last sense */
+		final ChangeSet changes = new ChangeSet();
+
+		/** version of the world working memory reflects, -1 before the first sense */
+		long version = -1;
+	}
+
 	/**
 	 * Adds a Player WME to working memory of the agent and deletes previous player WMEs in memory.
 	 */
 	protected void sense() {
+		State state = getState(State::new);
+		synchronized (state) {
+			World world = getWorld();
+			ChangeLog log = world.getChangeLog();
+			if (log.getVersion() == state.version) {
+				return;
+			}
+
+			ChangeSet changes = state.changes;
+			changes.clear();
+			boolean complete = log.read(state.version, changes);
+			state.version = changes.getVersion();
+			if (complete && !changes.isPlayerMoved()) {
+				return;
+			}
 
-		BehavingEntity.getBehavingEntity().deleteAllWMEClass("PlayerWME");
-		BehavingEntity.getBehavingEntity().addWME(
-				new PlayerWME(GameEngine.getInstance().getPlayerLocation(), GameEngine.getInstance().getPlayerTrajectory()));
+			BehavingEntity.getBehavingEntity().deleteAllWMEClass("PlayerWME");
+			BehavingEntity.getBehavingEntity().addWME(
+					new PlayerWME(world.getPlayerLocation(), world.getPlayerTrajectory()));
+		}
 	}
 }
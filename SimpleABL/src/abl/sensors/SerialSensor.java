@@ -1,20 +1,65 @@
 package abl.sensors;
 
+import abl.runtime.BehavingEntity;
 import abl.runtime.DefaultAsyncSensor;
+import game.AgentEvents;
+import game.Histogram;
+import game.Metrics;
+import game.World;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
 /**
  * Provides a base class for asynchronous parallel sensors. 
  * 
+ * Sensing is timed by kind, one-shot sensing for preconditions and continuous sensing
+ * for success tests and context conditions, and by sensor class. Each sense is also
+ * a flight recorder event.
+ * 
  * @author Ben Weber 3-7-11
  */
 public abstract class SerialSensor extends DefaultAsyncSensor{
 
+	/** latency of sensing by kind */
+	private static final Histogram PreconditionSenseTime = Metrics.timer("abl.sense.precondition");
+	private static final Histogram ContinuousSenseTime = Metrics.timer("abl.sense.continuous");
+
+	/** latency of sensing by sensor class */
+	private static final ClassValue<Histogram> SenseTimes = new ClassValue<Histogram>() {
+		protected Histogram computeValue(Class<?> type) {
+			return Metrics.timer("abl.sense." + type.getSimpleName());
+		}
+	};
+
+	/** state kept between senses by agent and sensor class */
+	private static final Map<BehavingEntity, Map<Class<?>, Object>> states =
+			Collections.synchronizedMap(new WeakHashMap<BehavingEntity, Map<Class<?>, Object>>());
+
 	/** 
 	 * Sense game state.
 	 * 
      * Note: This is invoked for success tests and context conditions.
 	 */
     public void senseContinuous(Object[] args) {
+        Object event = AgentEvents.beginSense();
+        long start = System.nanoTime();
+        sense(args);
+        ContinuousSenseTime.lap(start);
+        AgentEvents.endSense(event, getClass(), AgentEvents.Continuous);
+    }
+
+    /**
+     * Sense game state for preconditions.
+     */
+    public void senseOneShot(Object[] args) {
+        Object event = AgentEvents.beginSense();
+        long start = System.nanoTime();
         sense(args);
+        PreconditionSenseTime.lap(start);
+        AgentEvents.endSense(event, getClass(), AgentEvents.Precondition);
     }
 	
     /**
@@ -23,7 +68,9 @@ public abstract class SerialSensor extends DefaultAsyncSensor{
      * Note: This is invoked via senseOneShot, which is used in preconditions.
      */
     protected void sense(Object[] args) {
+        long start = System.nanoTime();
         sense();        
+        SenseTimes.get(getClass()).lap(start);
     }
 
     /**
@@ -33,6 +80,39 @@ public abstract class SerialSensor extends DefaultAsyncSensor{
     	return true;
     }
     
+    /**
+     * Returns the world of the agent being sensed for.
+     */
+    protected World getWorld() {
+    	return World.of(BehavingEntity.getBehavingEntity());
+    }
+    
+    /**
+     * Returns the state this kind of sensor keeps for the agent being sensed for,
+     * creating it with the factory on first use.
+     *
+     * Note: the runtime creates a new sensor for each activation, so state kept between
+     * senses can't be stored in the sensor itself.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T getState(Supplier<T> factory) {
+    	BehavingEntity entity = BehavingEntity.getBehavingEntity();
+    	synchronized (states) {
+    		Map<Class<?>, Object> byClass = states.get(entity);
+    		if (byClass == null) {
+    			byClass = new HashMap<Class<?>, Object>();
+    			states.put(entity, byClass);
+    		}
+
+    		Object state = byClass.get(getClass());
+    		if (state == null) {
+    			state = factory.get();
+    			byClass.put(getClass(), state);
+    		}
+    		return (T)state;
+    	}
+    }
+
     /**
      * Updates working memory with game state.
      */
@@ -7,10 +7,8 @@ import java.util.Iterator;
 import java.util.Map;
 
 import game.Bot;
-import game.GameEngine;
-import game.GameEngine.bulletorigin;
-import game.Wall;
-import game.Bullet;
+import game.World;
+import game.World.bulletorigin;
 import wm.WME;
 /**
  * Stores information that will be accessible to all bots 
@@ -18,17 +16,27 @@ import wm.WME;
  */
 public class BlackBoardWME extends WME {
 
-	Map bots; //key-value pairs: bot id - bot location 
+	World world;
+	/** bot id to bot location, updated by the sensor while holding the lock of the map */
+	Map bots;
 	Point playerLocation;
 	
 	/**
 	 * Instantiates a working memory element that is shared among all bots
 	 */
-	public BlackBoardWME(Map bots, Point playerLocation) {
+	public BlackBoardWME(World world, Map bots, Point playerLocation) {
+		this.world = world;
 		this.bots = bots;
 		this.playerLocation = playerLocation;
 	}
 
+	/**
+	 * Updates the location of the player.
+	 */
+	public void setPlayerLocation(Point playerLocation) {
+		this.playerLocation = playerLocation;
+	}
+
 	/**
 	 * 	checks if there will be a collision with the bot's current trajectory	
 	 */
@@ -47,37 +55,32 @@ public class BlackBoardWME extends WME {
 			return true;
 		}//check for collisions with the player
 		
-	    Iterator<Map.Entry<Integer, Point>> entries = bots.entrySet().iterator();
-	    while (entries.hasNext()) {
-	        Map.Entry entry = (Map.Entry)entries.next();	
-	    	Point point = (Point)entry.getValue();
-	    
-	    	if((int)entry.getKey() == id) {
-	    		continue;
-	    	}
+	    // the sensor updates the map under its lock
+	    synchronized (bots) {
+	        Iterator<Map.Entry<Integer, Point>> entries = bots.entrySet().iterator();
+	        while (entries.hasNext()) {
+	            Map.Entry entry = (Map.Entry)entries.next();
+	            Point point = (Point)entry.getValue();
+
+	            if((int)entry.getKey() == id) {
+	                continue;
+	            }
 
-	    	if(newLocation.x < point.getX() + dist &&
-	    			newLocation.x + dist > point.getX()&&
-	    			newLocation.y < point.getY() + dist &&
-	    			newLocation.y + dist > point.getY()) {
-	    		return true;
-	    	}//collision
-	    }//check for collision with bots
+	            // check for collision with bots
+	            if(newLocation.x < point.getX() + dist &&
+	                    newLocation.x + dist > point.getX()&&
+	                    newLocation.y < point.getY() + dist &&
+	                    newLocation.y + dist > point.getY()) {
+	                return true;
+	            }
+	        }
+	    }
 	    
-		for(Wall w : GameEngine.getInstance().getWalls()) {
-	    	if(newLocation.x < w.getX() + w.getWidth() &&
-	    			newLocation.x + size > w.getX()&&
-	    			newLocation.y < w.getY() + w.getHeight() &&
-	    			newLocation.y + size > w.getY()) {
-	    		return true;
-	    	}//collision	
-		}
-	
-		return false;
+		return world.isWallCollision(newLocation.x, newLocation.y, size);
 	}
 
 	public Boolean isPermanentBotCollision(int id, int padding) {
-		int dist = padding + Bot.Size - GameEngine.BotSpeed;
+		int dist = padding + Bot.Size - World.BotSpeed;
 		int size = Bot.Size;
 		Point location = (Point)(bots.get(id));
 	
@@ -85,21 +88,25 @@ public class BlackBoardWME extends WME {
 			return false;
 		}
 		
-	    Iterator<Map.Entry<Integer, Point>> entries = bots.entrySet().iterator();
-	    while (entries.hasNext()) {
-	        Map.Entry entry = (Map.Entry)entries.next();	
-	    	Point point = (Point)entry.getValue();
+	    // the sensor updates the map under its lock
+	    synchronized (bots) {
+	        Iterator<Map.Entry<Integer, Point>> entries = bots.entrySet().iterator();
+	        while (entries.hasNext()) {
+	            Map.Entry entry = (Map.Entry)entries.next();
+	            Point point = (Point)entry.getValue();
 
-	    	if((int)entry.getKey() == id) {
-	    		continue;
-	    	}
+	            if((int)entry.getKey() == id) {
+	                continue;
+	            }
 
-	    	if(location.x < point.getX() + dist &&
-	    			location.x + dist > point.getX()&&
-	    			location.y < point.getY() + dist &&
-	    			location.y + dist > point.getY()) {
-	    		return true;
-	    	}//collision
+	            // collision
+	            if(location.x < point.getX() + dist &&
+	                    location.x + dist > point.getX()&&
+	                    location.y < point.getY() + dist &&
+	                    location.y + dist > point.getY()) {
+	                return true;
+	            }
+	        }
 	    }
 	    
 	    return false;
@@ -108,21 +115,15 @@ public class BlackBoardWME extends WME {
 	public Boolean isBulletCollision(int id) {
 		//where bot was
 		Point location = (Point)(bots.get(id));
+		if (location == null) {
+			// the bot despawned
+			return false;
+		}
 		//bot size
 		int size = Bot.Size;
 		// when in new spot, is hit by bullet
 		
-		for(Bullet b : GameEngine.getInstance().getBullets()) {
-			if(b.origin!=bulletorigin.FACTION1 && location.x < b.getX() + 4 &&	//bullet size is 4 - I'll remove this hardcoded thing in a bit
-	    			location.x + size > b.getX()&&
-	    			location.y < b.getY() + 4 &&
-	    			location.y + size > b.getY()) {
-				int targetbulletindex = (GameEngine.getInstance().getBullets()).indexOf(b);
-				GameEngine.getInstance().removeBullet(targetbulletindex);
-	    		return true;
-			}
-		}
-		return false;
+		return world.hitBullet(location.x, location.y, size, bulletorigin.FACTION1);
 	}
 	
 	public int calcDistance(int playerX, int playerY, int botX, int botY) {
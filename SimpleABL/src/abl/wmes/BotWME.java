@@ -4,7 +4,8 @@ import java.awt.Color;
 import java.awt.Point;
 
 import game.Bot;
-import game.GameEngine;
+import game.Log;
+import game.World;
 import wm.WME;
 /**
  * Stores information about the bot.
@@ -14,11 +15,16 @@ import wm.WME;
  */
 public class BotWME extends WME {
 
+	/** World the bot lives in */
+	private World world;
+
 	/** Location of the bot */
-	private Point location;
+	private int locationX;
+	private int locationY;
 	
 	/** Trajectory of the bot */
-	private Point trajectory;
+	private int trajectoryX;
+	private int trajectoryY;
 	
 	/** possible trajectory of the bot */
 	private int potentialX;
@@ -36,43 +42,54 @@ public class BotWME extends WME {
 	private int formPos;
 	
 	private int trust;
-	
-	private Boolean hasFired;
-
-	/** Has this bot moved this round? */
-	private Boolean moved;
 
-	//private Boolean shouldTrustChange;
-	
-	private Boolean trustUpdated;
-	
-	private Boolean shot;
+	/**
+	 * Rounds in which the bot last fired, moved, updated its trust and was shot. The
+	 * getters compare them with the current rounds of the world, so starting a round
+	 * needs no update of the element.
+	 */
+	private int firedRound;
+	private int movedRound;
+	private int trustUpdatedRound;
+	private int shotRound;
 
 	private Boolean wandering;
 
-	private Point wanderingTarget;
+	/** Target of the wandering bot, 0, 0 if it has none */
+	private int wanderingX;
+	private int wanderingY;
 	
 	/**
 	 * Instantiates a working memory element for tracking a bot.
 	 */
-	public BotWME(Point location, Point trajectory, int id, 
-				  Color color, int formPos, int trust, Boolean moved, 
-				  Boolean hasFired, Boolean trustUpdated, Boolean shot, 
-				  Boolean wandering, Point wanderingTarget) {
-		this.location = location;
-		this.trajectory = trajectory;
-		this.id = id;
-		this.color = color;
-		this.formPos = formPos;
-		this.trust = trust;
-		this.hasFired = hasFired;
-		this.moved = moved;
+	public BotWME(World world, Bot b) {
+		this.world = world;
+		this.id = b.getId();
 		this.potentialX = 0;
 		this.potentialY = 0;
-		this.shot = shot;
-		this.trustUpdated = trustUpdated;
-		this.wandering = wandering;
-		this.wanderingTarget = wanderingTarget;
+		update(b);
+	}
+
+	/**
+	 * Copies the current state of the bot into this working memory element.
+	 */
+	public void update(Bot b) {
+		this.locationX = b.getX();
+		this.locationY = b.getY();
+		this.trajectoryX = b.getTrajectoryX();
+		this.trajectoryY = b.getTrajectoryY();
+		if (color == null || color.getRGB() != b.getRGB()) {
+			this.color = b.getColor();
+		}
+		this.formPos = b.getFormPos();
+		this.trust = b.getTrust();
+		this.firedRound = b.getFiredRound();
+		this.movedRound = b.getMovedRound();
+		this.trustUpdatedRound = b.getTrustUpdatedRound();
+		this.shotRound = b.getShotRound();
+		this.wandering = b.isWandering();
+		this.wanderingX = b.getWanderingX();
+		this.wanderingY = b.getWanderingY();
 	}
 
 	public boolean check() {
@@ -80,14 +97,13 @@ public class BotWME extends WME {
 	}
 
 	public boolean setPotentialTrajectory(int dirx, int diry) {
-		for(Bot b:GameEngine.getInstance().getBots()) {
-			if(b.getId() == id) {
-				b.setPotentialTrajectory(new Point(dirx, diry));
-				return true;
-			}
+		Bot b = world.getBot(id);
+		if (b != null) {
+			b.setPotentialTrajectory(new Point(dirx, diry));
+			return true;
 		}
 		
-		System.out.println("HELP! I can't find that bot!");
+		Log.warn("HELP! I can't find bot %d!", id);
 		return false;
 	}
 		
@@ -95,10 +111,10 @@ public class BotWME extends WME {
 		final double sqrt2 = 1.41421356237;
 		int dirx = 0;
 		int diry = 0;
-		int x = (int)location.getX();
-		int y = (int)location.getY();
+		int x = locationX;
+		int y = locationY;
 		
-		int speed = GameEngine.BotSpeed;
+		int speed = World.BotSpeed;
 		
 		//System.out.println("Calculating trajectory!");
 		
@@ -130,28 +146,28 @@ public class BotWME extends WME {
 	 * Returns the x location of the bot. 
 	 */
 	public int getLocationX() {
-		return location.x;
+		return locationX;
 	}
 	
 	/**
 	 * Returns the y location of the bot. 
 	 */
 	public int getLocationY() {
-		return location.y;
+		return locationY;
 	}
 	
 	/**
 	 * Returns the x direction of the bot. 
 	 */
 	public int getTrajectoryX() {
-		return trajectory.x;
+		return trajectoryX;
 	}
 	
 	/**
 	 * Returns the y direction of the bot. 
 	 */
 	public int getTrajectoryY() {
-		return trajectory.y;
+		return trajectoryY;
 	}
 
 	public int getId() {
@@ -184,20 +200,18 @@ public class BotWME extends WME {
 	public void setTrust(int trust) {
 		this.trust = trust;
 	}
+	/**
+	 * Has the bot fired this fire round, or is it not due to fire?
+	 */
 	public Boolean getHasFired() {
-		return hasFired;
-	}
-
-	public void setHasFired(Boolean hasFired) {
-		this.hasFired = hasFired;
+		return world.hasFired(id, locationX, locationY, firedRound);
 	}
 
+	/**
+	 * Has the bot moved this move round, or is it not due to move?
+	 */
 	public Boolean getMoved() {
-		return moved;
-	}
-	
-	public void setMoved(Boolean moved) {
-		this.moved = moved;
+		return world.isMoved(id, locationX, locationY, movedRound);
 	}
 
 	/**
@@ -229,31 +243,17 @@ public class BotWME extends WME {
 	}
 	
 	/**
-	 * @return the trustUpdated
+	 * @return whether the bot updated its trust this trust round, or is not due to
 	 */
 	public Boolean getTrustUpdated() {
-		return trustUpdated;
+		return world.isTrustUpdated(id, locationX, locationY, trustUpdatedRound, shotRound);
 	}
 
 	/**
-	 * @param trustUpdated the trustUpdated to set
-	 */
-	public void setTrustUpdated(Boolean trustUpdated) {
-		this.trustUpdated = trustUpdated;
-	}
-
-	/**
-	 * @return the shot
+	 * @return whether the bot was shot this trust round
 	 */
 	public Boolean getShot() {
-		return shot;
-	}
-
-	/**
-	 * @param shot the shot to set
-	 */
-	public void setShot(Boolean shot) {
-		this.shot = shot;
+		return shotRound == world.getTrustRound();
 	}
 
 	/**
@@ -271,16 +271,10 @@ public class BotWME extends WME {
 	}
 
 	public int getWanderingX() {
-		if(wanderingTarget != null) {
-			return wanderingTarget.x;
-		}
-		return 0;
+		return wanderingX;
 	}
 
 	public int getWanderingY() {
-		if(wanderingTarget != null) {
-			return wanderingTarget.y;
-		}
-		return 0;
+		return wanderingY;
 	}
 }
@@ -0,0 +1,330 @@
+package game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import abl.runtime.Behavior;
+import abl.runtime.BehavingEntity;
+import abl.runtime.BehavingListener;
+import abl.runtime.Step;
+
+/**
+ * Streams samples of the active behavior trees of the agents to AbtViewer processes,
+ * for inspecting agents without compiling them in debug mode (-g2).
+ *
+ * While a viewer is connected, the decision cycle of every instrumented agent renders
+ * its tree at most once per sample period: the behaviors and steps from the root to
+ * each leaf step, steps that are executing marked with a *. Samples are placed in a
+ * lock-free ring buffer and a background thread writes them to the viewers. If the
+ * ring is full the sample is dropped and counted. Without a viewer the agents only
+ * read the clock once per cycle.
+ *
+ * The stream is text, one sample per frame:
+ *   frame agent cycle time
+ *   indented nodes, two spaces per level
+ *   end
+ *
+ * Usage: AbtInspector.serve(port) before agents are attached to a world,
+ *        then run AbtViewer port.
+ */
+public final class AbtInspector {
+
+	/** default time between samples of an agent (in milliseconds) */
+	public static final int SamplePeriod = 100;
+
+	/** number of samples the ring holds, a power of two */
+	public static final int Capacity = 1 << 8;
+
+	/** time between samples of an agent (in nanoseconds) */
+	private static volatile long samplePeriod = TimeUnit.MILLISECONDS.toNanos(SamplePeriod);
+
+	/** the ring: agents claim slots by advancing tail, the sender frees them by advancing head */
+	private static final AtomicReferenceArray<String> slots = new AtomicReferenceArray<String>(Capacity);
+	private static final AtomicLong tail = new AtomicLong();
+	private static volatile long head = 0;
+
+	/** samples dropped because the ring was full */
+	private static final AtomicLong dropped = new AtomicLong();
+
+	/** connected viewers */
+	private static final List<OutputStream> viewers = new CopyOnWriteArrayList<OutputStream>();
+
+	/** agents with a sampling listener */
+	private static final Map<BehavingEntity, String> instrumented =
+			Collections.synchronizedMap(new WeakHashMap<BehavingEntity, String>());
+
+	/** number of instrumented agents, for naming them */
+	private static final AtomicInteger agents = new AtomicInteger();
+
+	/** the server socket, if started */
+	private static ServerSocket server;
+
+	private AbtInspector() {
+	}
+
+	/**
+	 * Accepts viewers on the given local port and starts sending them samples, returns
+	 * the bound port. Port 0 picks a free port.
+	 */
+	public static synchronized int serve(int port) throws IOException {
+		if (server != null) {
+			return server.getLocalPort();
+		}
+
+		server = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+		final ServerSocket socket = server;
+
+		Thread acceptor = new Thread("abt-inspector-accept") {
+			public void run() {
+				while (!socket.isClosed()) {
+					try {
+						Socket viewer = socket.accept();
+						viewer.setTcpNoDelay(true);
+						viewers.add(viewer.getOutputStream());
+						Log.info("ABT viewer connected from %s", viewer.getRemoteSocketAddress());
+					}
+					catch (IOException e) {
+						// closed
+					}
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		Thread sender = new Thread("abt-inspector-send") {
+			public void run() {
+				while (!socket.isClosed()) {
+					if (!send()) {
+						LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+					}
+				}
+			}
+		};
+		sender.setDaemon(true);
+		sender.start();
+
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting viewers and disconnects the connected ones.
+	 */
+	public static synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+
+		try {
+			server.close();
+		}
+		catch (IOException e) {
+		}
+		server = null;
+
+		for (OutputStream viewer : viewers) {
+			try {
+				viewer.close();
+			}
+			catch (IOException e) {
+			}
+		}
+		viewers.clear();
+	}
+
+	/**
+	 * Sets the time between samples of an agent (in milliseconds).
+	 */
+	public static void setSamplePeriod(long millis) {
+		samplePeriod = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Returns the number of samples dropped because the ring was full.
+	 */
+	public static long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Samples the behavior tree of the agent while viewers are connected, if serving.
+	 */
+	public static void instrument(final BehavingEntity agent) {
+		synchronized (AbtInspector.class) {
+			if (server == null) {
+				return;
+			}
+		}
+		if (instrumented.containsKey(agent)) {
+			return;
+		}
+
+		final String name = agent.getClass().getSimpleName() + "-" + agents.incrementAndGet();
+		instrumented.put(agent, name);
+
+		agent.addBehavingListener(new BehavingListener() {
+			private static final long serialVersionUID = 1L;
+
+			/** unique names of the behaviors by id */
+			private final Map<Integer, String> names = new HashMap<Integer, String>();
+
+			private long cycle = 0;
+			private long lastSample = 0;
+
+			public void onBehave(Map<String, Set<Step>> executingSteps, Set<Step> leafSteps) {
+				cycle++;
+				if (viewers.isEmpty()) {
+					return;
+				}
+
+				long now = System.nanoTime();
+				if (now - lastSample < samplePeriod) {
+					return;
+				}
+				lastSample = now;
+
+				publish(render(name, cycle, executingSteps, leafSteps, names));
+			}
+
+			public void onLoad(BehavingEntity.BehaviorLibrary individual, BehavingEntity.BehaviorLibrary joint) {
+				AgentEvents.addBehaviorNames(individual, names);
+				AgentEvents.addBehaviorNames(joint, names);
+			}
+		});
+	}
+
+	/**
+	 * Renders the paths from the root behavior to the leaf steps as a frame.
+	 */
+	private static String render(String agent, long cycle, Map<String, Set<Step>> executingSteps,
+			Set<Step> leafSteps, Map<Integer, String> names) {
+
+		// children of each behavior and goal, the root has a null parent
+		Map<Object, List<Object>> children = new IdentityHashMap<Object, List<Object>>();
+		Map<Object, Boolean> added = new IdentityHashMap<Object, Boolean>();
+		for (Step leaf : leafSteps) {
+			Object node = leaf;
+			while (node != null && added.put(node, Boolean.TRUE) == null) {
+				Object parent = node instanceof Step ? ((Step)node).getParent() : ((Behavior)node).getParent();
+				List<Object> list = children.get(parent);
+				if (list == null) {
+					list = new ArrayList<Object>();
+					children.put(parent, list);
+				}
+				list.add(node);
+				node = parent;
+			}
+		}
+
+		Map<Object, Boolean> executing = new IdentityHashMap<Object, Boolean>();
+		for (Collection<Step> steps : executingSteps.values()) {
+			for (Step step : steps) {
+				executing.put(step, Boolean.TRUE);
+			}
+		}
+
+		StringBuilder frame = new StringBuilder();
+		frame.append("frame ").append(agent).append(' ').append(cycle).append(' ')
+				.append(System.currentTimeMillis()).append('\n');
+		appendChildren(frame, null, 0, children, executing, names);
+		frame.append("end\n");
+		return frame.toString();
+	}
+
+	private static void appendChildren(StringBuilder frame, Object parent, int depth,
+			Map<Object, List<Object>> children, Map<Object, Boolean> executing, Map<Integer, String> names) {
+		List<Object> list = children.get(parent);
+		if (list == null) {
+			return;
+		}
+
+		final List<String> labels = new ArrayList<String>(list.size());
+		List<Integer> order = new ArrayList<Integer>(list.size());
+		for (Object node : list) {
+			order.add(labels.size());
+			labels.add(node instanceof Behavior
+					? AgentEvents.behaviorName((Behavior)node, names) + " (" + node + ")"
+					: node.toString() + (executing.containsKey(node) ? " *" : ""));
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return labels.get(a).compareTo(labels.get(b));
+			}
+		});
+
+		for (int i : order) {
+			for (int d = 0; d < depth; d++) {
+				frame.append("  ");
+			}
+			frame.append(labels.get(i)).append('\n');
+			appendChildren(frame, list.get(i), depth + 1, children, executing, names);
+		}
+	}
+
+	/**
+	 * Places a frame in the ring, or drops it if the ring is full.
+	 */
+	private static void publish(String frame) {
+		while (true) {
+			long t = tail.get();
+			if (t - head >= Capacity) {
+				dropped.incrementAndGet();
+				return;
+			}
+			if (tail.compareAndSet(t, t + 1)) {
+				slots.set((int)(t & (Capacity - 1)), frame);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the frames in the ring to the viewers, returns false if there were none.
+	 */
+	private static boolean send() {
+		boolean sent = false;
+		while (true) {
+			int slot = (int)(head & (Capacity - 1));
+			String frame = slots.get(slot);
+			if (frame == null) {
+				break;
+			}// empty, or claimed but not yet published
+			slots.set(slot, null);
+			head++;
+
+			byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+			for (OutputStream viewer : viewers) {
+				try {
+					viewer.write(bytes);
+					viewer.flush();
+				}
+				catch (IOException e) {
+					viewers.remove(viewer);
+					Log.info("ABT viewer disconnected");
+				}
+			}
+			sent = true;
+		}
+		return sent;
+	}
+}
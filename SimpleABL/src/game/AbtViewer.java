@@ -0,0 +1,74 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shows the behavior tree samples streamed by an AbtInspector.
+ *
+ * Usage: AbtViewer [host:]port [--agent=name] [--log]
+ * redraws the terminal with every sample, only those of the named agent (e.g. Advanced-1)
+ * if given, or with --log prints the samples one after the other.
+ */
+public class AbtViewer {
+
+	/** ANSI codes moving the cursor home and clearing the terminal */
+	private static final String ClearScreen = "\033[H\033[2J";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: AbtViewer [host:]port [--agent=name] [--log]");
+			return;
+		}
+
+		String host = "localhost";
+		String address = args[0];
+		int colon = address.lastIndexOf(':');
+		if (colon >= 0) {
+			host = address.substring(0, colon);
+			address = address.substring(colon + 1);
+		}
+		int port = Integer.parseInt(address);
+
+		String agent = null;
+		boolean log = false;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("--agent=")) {
+				agent = args[i].substring("--agent=".length());
+			}
+			else if (args[i].equals("--log")) {
+				log = true;
+			}
+			else {
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+
+		try (Socket socket = new Socket(host, port);
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			StringBuilder frame = new StringBuilder();
+			boolean shown = false;
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("frame ")) {
+					frame.setLength(0);
+					String[] header = line.split(" ");
+					shown = agent == null || header[1].equals(agent);
+					frame.append(header[1]).append("  cycle ").append(header[2]).append('\n');
+				}
+				else if (line.equals("end")) {
+					if (shown) {
+						System.out.print(log ? frame.append('\n') : ClearScreen + frame);
+						System.out.flush();
+					}
+				}
+				else {
+					frame.append(line).append('\n');
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package game;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import abl.runtime.Behavior;
+import abl.runtime.BehavingEntity;
+import abl.runtime.BehavingListener;
+import abl.runtime.Step;
+import abl.runtime.__BehaviorDesc;
+
+/**
+ * Java Flight Recorder events of the agents: decision cycles, behavior selections,
+ * precondition evaluations, sensing and primitive acts.
+ *
+ * Events are only created if the JVM has the flight recorder (Java 8u262 and later)
+ * and a recording enables them, otherwise the hooks cost a field read. Record with
+ *   java -XX:StartFlightRecording=filename=agent.jfr,settings=profile ...
+ * and open the file in Mission Control, the events are in the ABL category.
+ *
+ * Behaviors are named like in the generated Analysis class of the agent: the name of
+ * the behavior followed by its number among the behaviors with that name, e.g. move_2.
+ *
+ * Precondition evaluations are recorded by the wrapper PreconditionStats puts in place
+ * of the generated preconditions, which it installs for the agents attached while the
+ * precondition event is enabled, e.g. by a recording started with the JVM.
+ */
+public final class AgentEvents {
+
+	/** does the JVM have the flight recorder? */
+	static final boolean Available = isAvailable();
+
+	/** kinds of sensing */
+	public static final String Precondition = "precondition";
+	public static final String Continuous = "continuous";
+
+	/** suffix of the root behavior, the only one without a number */
+	private static final String RootBehavior = "_RootCollectionBehavior";
+
+	/** agents with a behaving listener */
+	private static final Set<BehavingEntity> instrumented =
+			Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<BehavingEntity, Boolean>()));
+
+	/** id of a running behavior, not part of the runtime API */
+	private static final Field BehaviorId = field(Behavior.class, "behaviorID");
+
+	private AgentEvents() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static Field field(Class<?> type, String name) {
+		try {
+			Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Starts the event of an act, returns null if it is not recorded.
+	 */
+	public static Object beginAct() {
+		return Available ? FlightEvents.beginAct() : null;
+	}
+
+	/**
+	 * Ends the event of an act of the given action class.
+	 */
+	public static void endAct(Object event, Class<?> action) {
+		if (event != null) {
+			FlightEvents.endAct(event, action.getSimpleName());
+		}
+	}
+
+	/**
+	 * Starts the event of a sense, returns null if it is not recorded.
+	 */
+	public static Object beginSense() {
+		return Available ? FlightEvents.beginSense() : null;
+	}
+
+	/**
+	 * Ends the event of a sense of the given sensor class and kind.
+	 */
+	public static void endSense(Object event, Class<?> sensor, String kind) {
+		if (event != null) {
+			FlightEvents.endSense(event, sensor.getSimpleName(), kind);
+		}
+	}
+
+	/**
+	 * Is the precondition event enabled by a running recording?
+	 */
+	public static boolean isPreconditionEnabled() {
+		return Available && FlightEvents.isPreconditionEnabled();
+	}
+
+	/**
+	 * Starts the event of a precondition evaluation, returns null if it is not recorded.
+	 */
+	public static Object beginPrecondition() {
+		return Available ? FlightEvents.beginPrecondition() : null;
+	}
+
+	/**
+	 * Ends the event of a precondition evaluation of the named behavior with its result.
+	 */
+	public static void endPrecondition(Object event, String behavior, boolean result) {
+		if (event != null) {
+			FlightEvents.endPrecondition(event, behavior, result);
+		}
+	}
+
+	/**
+	 * Records the decision cycles of the agent and the behaviors it selects.
+	 */
+	public static void instrument(final BehavingEntity agent) {
+		if (!Available || !instrumented.add(agent)) {
+			return;
+		}
+
+		agent.addBehavingListener(new BehavingListener() {
+			private static final long serialVersionUID = 1L;
+
+			/** unique names of the behaviors by id */
+			private final Map<Integer, String> names = new HashMap<Integer, String>();
+
+			/** behaviors that were already executing */
+			private final Set<Behavior> selected =
+					Collections.newSetFromMap(new WeakHashMap<Behavior, Boolean>());
+
+			/** event of the running decision cycle */
+			private Object cycle;
+
+			public void onBehave(Map<String, Set<Step>> executingSteps, Set<Step> leafSteps) {
+				String name = agent.getClass().getSimpleName();
+				if (cycle != null) {
+					FlightEvents.endDecisionCycle(cycle, name, leafSteps.size());
+				}
+				cycle = FlightEvents.beginDecisionCycle();
+
+				if (FlightEvents.isBehaviorSelectedEnabled()) {
+					for (Step step : leafSteps) {
+						Behavior behavior = step.getParent();
+						if (behavior != null && selected.add(behavior)) {
+							FlightEvents.behaviorSelected(name, behaviorName(behavior, names), behavior.toString());
+						}
+					}
+				}
+			}
+
+			public void onLoad(BehavingEntity.BehaviorLibrary individual, BehavingEntity.BehaviorLibrary joint) {
+				addBehaviorNames(individual, names);
+				addBehaviorNames(joint, names);
+			}
+
+		});
+	}
+
+	/**
+	 * Returns the name of a running behavior from the names by id, or its description
+	 * if the name is not known.
+	 */
+	static String behaviorName(Behavior behavior, Map<Integer, String> names) {
+		if (BehaviorId != null) {
+			try {
+				String name = names.get(BehaviorId.getInt(behavior));
+				if (name != null) {
+					return name;
+				}
+			}
+			catch (IllegalAccessException e) {
+			}
+		}
+		return behavior.toString();
+	}
+
+	/**
+	 * Adds the names of the behaviors in the library by id. Behaviors with the same name
+	 * are numbered in the order of their ids, like the compiler does.
+	 */
+	static void addBehaviorNames(BehavingEntity.BehaviorLibrary library, Map<Integer, String> names) {
+		if (library == null) {
+			return;
+		}
+
+		List<__BehaviorDesc> descs = new ArrayList<__BehaviorDesc>();
+		for (List<__BehaviorDesc> list : library.getBehaviorMap().values()) {
+			descs.addAll(list);
+		}
+		Collections.sort(descs, new Comparator<__BehaviorDesc>() {
+			public int compare(__BehaviorDesc a, __BehaviorDesc b) {
+				return Integer.compare(a.behaviorID, b.behaviorID);
+			}
+		});
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (__BehaviorDesc desc : descs) {
+			int paren = desc.signature.indexOf('(');
+			String name = paren >= 0 ? desc.signature.substring(0, paren) : desc.signature;
+			Integer count = counts.get(name);
+			count = count == null ? 1 : count + 1;
+			counts.put(name, count);
+			names.put(desc.behaviorID, name.endsWith(RootBehavior) ? name : name + "_" + count);
+		}
+	}
+}
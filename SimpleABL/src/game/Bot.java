@@ -2,225 +2,467 @@ package game;
 
 import java.awt.Color;
 import java.awt.Point;
+import java.nio.ByteBuffer;
 
+/**
+ * A bot of the world.
+ *
+ * The state is kept in a row of the BotStore of the world, outside the Java heap, and
+ * this object is a view of the row: coordinates instead of Points, colors as packed RGB
+ * values, and the flags, size and hit count packed into one state word. A bot takes 64
+ * bytes of columns and a view of 24 bytes. The Point and Color getters create their
+ * values on each call, use getX(), getTrajectoryX(), getRGB() and the like in loops over
+ * many bots.
+ */
 public class Bot {
-	
+
 	public static final int Size = 10;
-	
-	static int IdCount = 0;
-	
-	/** Location of the bot */
-	private Point location;
-	
-	/** Trajectory of the bot */
-	private Point trajectory;	
-	
-	/** Trajectory of the bot */
-	private Point potentialTrajectory;
-	
-	/** Indicates whether this bot has been shot */
-	private boolean shot;
-	
-	/** Has the bot moved this round? */
-	private boolean moved;
-	
-	/** Has the bot updated its trust level this round? */
-	private boolean trustUpdated;
-	
-	/** unique bot ID */
-	private int id;
-
-	private Color color;
-	
-	private Color basecolor = new Color(255,165,0);
-	
-	private int size = Size;
-
-	private int formPos;
-	
-	private Boolean hasFired;
-	
-	private int trust;
-	
-	private Boolean wandering;
-	
-	private Point wanderingTarget;
-	
-	public Bot() {
-		this.location = new Point(0,0);
-		this.trajectory = new Point(0,0);
-		this.id = IdCount++;
-		this.basecolor = new Color(255,165,0);
-		this.color = new Color(255,165,0);
-		this.hasFired = false;
-		this.trustUpdated = false;
-		this.wandering = false;
-		this.potentialTrajectory = new Point(0,0);
+
+	/** color of a neutral bot */
+	private static final int BaseRGB = new Color(255,165,0).getRGB();
+
+	/** size of a bot in a checkpoint (in bytes) */
+	static final int CheckpointSize = 21*4 + 2;
+
+	/** flag bits of the state word */
+	private static final int Wandering = 1;
+	private static final int HasWanderingTarget = 2;
+
+	/** fields packed into the state word above the flags */
+	private static final int SizeShift = 8;
+	private static final int SizeMask = 0xFF << SizeShift;
+	private static final int HitsShift = 16;
+	private static final int MaxHits = 0xFFFF;
+
+	/** the store holding the state and the row of this bot */
+	private final BotStore store;
+	private final int row;
+
+	/** log the changes of the bot are recorded in, set when it is added to a world */
+	private ChangeLog changeLog;
+
+	/**
+	 * Creates a bot with the given id in a new row of the store.
+	 */
+	Bot(BotStore store, int id) {
+		this.store = store;
+		this.row = store.allocate();
+		reset(id);
+	}
+
+	/**
+	 * Returns the bot to the state of a new bot with the given id, for reusing it.
+	 */
+	void reset(int id) {
+		BotStore s = store;
+		s.set(s.id, row, id);
+		s.set(s.x, row, 0);
+		s.set(s.y, row, 0);
+		s.set(s.trajectoryX, row, 0);
+		s.set(s.trajectoryY, row, 0);
+		s.set(s.potentialX, row, 0);
+		s.set(s.potentialY, row, 0);
+		s.set(s.wanderingX, row, 0);
+		s.set(s.wanderingY, row, 0);
+		s.set(s.shotRound, row, -1);
+		s.set(s.movedRound, row, -1);
+		s.set(s.trustUpdatedRound, row, -1);
+		s.set(s.firedRound, row, -1);
+		s.set(s.trust, row, 0);
+		s.set(s.formPos, row, 0);
+		s.set(s.rgb, row, BaseRGB);
+		s.set(s.state, row, Size << SizeShift);
+		this.changeLog = null;
+	}
+
+	/**
+	 * Gives the row of the bot back to the store, the bot must not be used after.
+	 */
+	void release() {
+		store.free(row);
+	}
+
+	private int get(int column) {
+		return store.get(column, row);
+	}
+
+	private void set(int column, int value) {
+		store.set(column, row, value);
 	}
 
 	public Point getLocation() {
-		return location;
+		return new Point(getX(), getY());
 	}
 
 	public void setLocation(Point location) {
-		this.location = location;
+		setLocation(location.x, location.y);
+	}
+
+	public void setLocation(int x, int y) {
+		if (x != getX() || y != getY()) {
+			set(store.x, x);
+			set(store.y, y);
+			changed(ChangeLog.BotMoved);
+		}
 	}
 
 	public Point getTrajectory() {
-		return trajectory;
+		return new Point(getTrajectoryX(), getTrajectoryY());
+	}
+
+	public int getTrajectoryX() {
+		return get(store.trajectoryX);
+	}
+
+	public int getTrajectoryY() {
+		return get(store.trajectoryY);
 	}
 
 	public void setTrajectory(Point trajectory) {
-		this.trajectory = trajectory;
+		setTrajectory(trajectory.x, trajectory.y);
+	}
+
+	public void setTrajectory(int x, int y) {
+		set(store.trajectoryX, x);
+		set(store.trajectoryY, y);
+		changed(ChangeLog.BotChanged);
 	}
 
 	public int getX( ) {
-		return this.location.x;
+		return get(store.x);
 	}
-	
+
 	public int getY( ) {
-		return this.location.y;
+		return get(store.y);
 	}
-	
+
 	public int getId() {
-		return id;
+		return get(store.id);
 	}
 
 	public int getSize() {
-		return size;
+		return (get(store.state) & SizeMask) >>> SizeShift;
 	}
 
+	/**
+	 * Sets the size, from 0 to 255.
+	 */
 	public void setSize(int size) {
-		this.size = size;
+		if (size < 0 || size > 255) {
+			throw new IllegalArgumentException("Bot size outside of 0 to 255: " + size);
+		}
+		updateState(SizeMask, size << SizeShift);
 	}
 
 	public Color getColor() {
-		return color;
+		return new Color(getRGB());
+	}
+
+	/**
+	 * Returns the color as packed RGB, see Color.getRGB().
+	 */
+	public int getRGB() {
+		return get(store.rgb);
 	}
 
 	public void setColor(Color color) {
-		this.color = color;
+		setRGB(color.getRGB());
+	}
+
+	/**
+	 * Sets the color as packed RGB, see Color.getRGB().
+	 */
+	public void setRGB(int rgb) {
+		set(store.rgb, rgb);
+		changed(ChangeLog.BotChanged);
 	}
-	
+
 
 	public int getFormPos() {
-		return formPos;
+		return get(store.formPos);
 	}
 
 	public void setFormPos(int formPos) {
-		this.formPos = formPos;
+		set(store.formPos, formPos);
+		changed(ChangeLog.BotChanged);
 	}
 
-	public Boolean firedCheck() {
-		return hasFired;
+	/**
+	 * Has the bot fired during the given fire round?
+	 */
+	public boolean firedCheck(int round) {
+		return get(store.firedRound) == round;
 	}
-	
-	public void setFiredCheck(Boolean hasFired) {
-		this.hasFired = hasFired;
+
+	/**
+	 * Returns the fire round in which the bot last fired.
+	 */
+	public int getFiredRound() {
+		return get(store.firedRound);
 	}
 
-	public Boolean isMoved() {
-		return moved;
+	/**
+	 * Marks the bot as having fired during the given fire round.
+	 */
+	public void setFiredCheck(int round) {
+		set(store.firedRound, round);
+		changed(ChangeLog.BotChanged);
 	}
-	
-	public void setMoved(Boolean moved) {
-		this.moved = moved;
+
+	/**
+	 * Has the agent moved the bot during the given move round?
+	 *
+	 * See World.isMoved() for whether the bot is done for the current round, which
+	 * includes the bots the schedulers skip.
+	 */
+	public boolean isMoved(int round) {
+		return get(store.movedRound) == round;
 	}
-	
+
+	/**
+	 * Returns the move round in which the agent last moved the bot.
+	 */
+	public int getMovedRound() {
+		return get(store.movedRound);
+	}
+
+	/**
+	 * Marks the bot as having moved during the given move round.
+	 */
+	public void setMoved(int round) {
+		set(store.movedRound, round);
+		changed(ChangeLog.BotChanged);
+	}
+
 	public int getTrust() {
-		return trust;
+		return get(store.trust);
 	}
-	
+
 	public void setTrust(int newtrust) {
-		this.trust = newtrust;
+		set(store.trust, newtrust);
 		setNewColor(newtrust);
 	}
-	
+
 	public void setNewColor(int trustvalue) {
-		int basered = basecolor.getRed();
-		int basegreen = basecolor.getGreen();
-		int baseblue = basecolor.getBlue();
+		int basered = (BaseRGB >> 16) & 0xFF;
+		int basegreen = (BaseRGB >> 8) & 0xFF;
+		int baseblue = BaseRGB & 0xFF;
 		if(trustvalue > 0) {
 			// trust
 			float degree = 1- (float)(100 - trustvalue)/100;
 			int red =  Math.round((0 - basered)*degree + basered);
 			int green = Math.round((255 - basegreen)*degree + basegreen);
 			int blue = Math.round((0 - baseblue)*degree + baseblue);
-			this.setColor(new Color(red, green, blue));
+			this.setRGB(rgb(red, green, blue));
 		} else if (trustvalue < 0) {
 			//distrust
 			float degree = 1- (float)(100 + trustvalue)/100;
 			int red =  Math.round((255 - basered)*degree + basered);
 			int green = Math.round((0 - basegreen)*degree + basegreen);
 			int blue = Math.round((0 - baseblue)*degree + baseblue);
-			this.setColor(new Color(red, green, blue));
+			this.setRGB(rgb(red, green, blue));
 		} else {
-			this.setColor(basecolor);
+			this.setRGB(BaseRGB);
+		}
+	}
+
+	/**
+	 * Packs an opaque color like new Color(red, green, blue).getRGB(), which rejects
+	 * components outside 0 to 255.
+	 */
+	private static int rgb(int red, int green, int blue) {
+		if ((red | green | blue) < 0 || red > 255 || green > 255 || blue > 255) {
+			throw new IllegalArgumentException("Color parameter outside of expected range: " + red + ", " + green + ", " + blue);
 		}
+		return 0xFF000000 | (red << 16) | (green << 8) | blue;
 	}
 
 	public Point getPotentialTrajectory() {
-		return this.potentialTrajectory;
+		return new Point(get(store.potentialX), get(store.potentialY));
 	}
 
 	public void setPotentialTrajectory(Point potentialTrajectory) {
-		this.potentialTrajectory = potentialTrajectory;
+		set(store.potentialX, potentialTrajectory.x);
+		set(store.potentialY, potentialTrajectory.y);
 	}
 
 	/**
-	 * @return the shot
+	 * @return whether the bot was shot during the given trust round
 	 */
-	public boolean isShot() {
-		return shot;
+	public boolean isShot(int round) {
+		return get(store.shotRound) == round;
 	}
 
 	/**
-	 * @param shot the shot to set
+	 * @param round the trust round in which the bot was shot
 	 */
-	public void setShot(boolean shot) {
-		this.shot = shot;
+	public void setShot(int round) {
+		set(store.shotRound, round);
+		int hits = Math.min(MaxHits, getHits() + 1);
+		updateState(MaxHits << HitsShift, hits << HitsShift);
+		changed(ChangeLog.BotShot);
 	}
 
 	/**
-	 * @return the trustUpdated
+	 * @return the trust round in which the bot was last shot
 	 */
-	public boolean isTrustUpdated() {
-		return trustUpdated;
+	public int getShotRound() {
+		return get(store.shotRound);
 	}
 
 	/**
-	 * @param trustUpdated the trustUpdated to set
+	 * @return the number of times the bot was shot
 	 */
-	public void setTrustUpdated(boolean trustUpdated) {
-		this.trustUpdated = trustUpdated;
+	public int getHits() {
+		return get(store.state) >>> HitsShift;
+	}
+
+	/**
+	 * @return whether the bot updated its trust during the given trust round
+	 */
+	public boolean isTrustUpdated(int round) {
+		return get(store.trustUpdatedRound) == round;
+	}
+
+	/**
+	 * @param round the trust round in which the bot updated its trust
+	 */
+	public void setTrustUpdated(int round) {
+		set(store.trustUpdatedRound, round);
+		changed(ChangeLog.BotChanged);
+	}
+
+	/**
+	 * @return the trust round in which the bot last updated its trust
+	 */
+	public int getTrustUpdatedRound() {
+		return get(store.trustUpdatedRound);
 	}
 
 	/**
 	 * @return the wandering
 	 */
-	public Boolean isWandering() {
-		return wandering;
+	public boolean isWandering() {
+		return (get(store.state) & Wandering) != 0;
 	}
 
 	/**
 	 * @param wandering the wandering to set
 	 */
-	public void setWandering(Boolean wandering) {
-		this.wandering = wandering;
+	public void setWandering(boolean wandering) {
+		setFlag(Wandering, wandering);
+		changed(ChangeLog.BotChanged);
 	}
 
 	/**
-	 * @return the wanderingTarget
+	 * @return the wanderingTarget, or null if the bot has none
 	 */
 	public Point getWanderingTarget() {
-		return wanderingTarget;
+		return (get(store.state) & HasWanderingTarget) != 0 ? new Point(getWanderingX(), getWanderingY()) : null;
+	}
+
+	/**
+	 * @return the x coordinate of the wanderingTarget, 0 if the bot has none
+	 */
+	public int getWanderingX() {
+		return get(store.wanderingX);
 	}
 
 	/**
-	 * @param wanderingTarget the wanderingTarget to set
+	 * @return the y coordinate of the wanderingTarget, 0 if the bot has none
+	 */
+	public int getWanderingY() {
+		return get(store.wanderingY);
+	}
+
+	/**
+	 * @param wanderingTarget the wanderingTarget to set, null for none
 	 */
 	public void setWanderingTarget(Point wanderingTarget) {
-		this.wanderingTarget = wanderingTarget;
+		setFlag(HasWanderingTarget, wanderingTarget != null);
+		set(store.wanderingX, wanderingTarget != null ? wanderingTarget.x : 0);
+		set(store.wanderingY, wanderingTarget != null ? wanderingTarget.y : 0);
+		changed(ChangeLog.BotChanged);
+	}
+
+	private void setFlag(int flag, boolean value) {
+		updateState(flag, value ? flag : 0);
+	}
+
+	/**
+	 * Replaces the bits of the state word in the mask with the given bits.
+	 *
+	 * Note: the world counts hits while the agent sets flags, so updates of the shared
+	 * word synchronize.
+	 */
+	private synchronized void updateState(int mask, int bits) {
+		set(store.state, (get(store.state) & ~mask) | bits);
+	}
+
+	/**
+	 * Writes the state of the bot to a checkpoint.
+	 */
+	void write(ByteBuffer buffer) {
+		BotStore s = store;
+		buffer.putInt(get(s.id)).putInt(get(s.x)).putInt(get(s.y));
+		buffer.putInt(get(s.trajectoryX)).putInt(get(s.trajectoryY));
+		buffer.putInt(get(s.potentialX)).putInt(get(s.potentialY));
+		buffer.putInt(getSize()).putInt(get(s.formPos)).putInt(get(s.trust));
+		buffer.putInt(get(s.rgb)).putInt(BaseRGB);
+		buffer.putInt(get(s.firedRound)).putInt(get(s.movedRound)).putInt(get(s.shotRound));
+		// the skipped trust round and think interval are computed by the schedulers now
+		buffer.putInt(get(s.trustUpdatedRound)).putInt(-1).putInt(1);
+		buffer.putInt(getHits());
+		buffer.put((byte)(isWandering() ? 1 : 0));
+		buffer.put((byte)((get(s.state) & HasWanderingTarget) != 0 ? 1 : 0));
+		buffer.putInt(get(s.wanderingX)).putInt(get(s.wanderingY));
+	}
+
+	/**
+	 * Reads a bot written by write() in the given checkpoint version into a new row of
+	 * the store.
+	 */
+	static Bot read(ByteBuffer buffer, int version, BotStore s) {
+		Bot b = new Bot(s, buffer.getInt());
+		b.set(s.x, buffer.getInt());
+		b.set(s.y, buffer.getInt());
+		b.set(s.trajectoryX, buffer.getInt());
+		b.set(s.trajectoryY, buffer.getInt());
+		b.set(s.potentialX, buffer.getInt());
+		b.set(s.potentialY, buffer.getInt());
+		b.setSize(buffer.getInt());
+		b.set(s.formPos, buffer.getInt());
+		b.set(s.trust, buffer.getInt());
+		b.set(s.rgb, buffer.getInt());
+		buffer.getInt();	// base color, always BaseRGB
+		b.set(s.firedRound, buffer.getInt());
+		b.set(s.movedRound, buffer.getInt());
+		b.set(s.shotRound, buffer.getInt());
+		b.set(s.trustUpdatedRound, buffer.getInt());
+		buffer.getInt();	// skipped trust round, no longer kept
+		buffer.getInt();	// think interval, no longer kept
+		int hits = version >= 2 ? Math.min(MaxHits, buffer.getInt()) : 0;
+		b.updateState(MaxHits << HitsShift, hits << HitsShift);
+		b.setFlag(Wandering, buffer.get() != 0);
+		b.setFlag(HasWanderingTarget, buffer.get() != 0);
+		b.set(s.wanderingX, buffer.getInt());
+		b.set(s.wanderingY, buffer.getInt());
+		return b;
+	}
+
+	/**
+	 * Sets the log the changes of the bot are recorded in.
+	 */
+	public void setChangeLog(ChangeLog changeLog) {
+		this.changeLog = changeLog;
 	}
 
+	/**
+	 * Records a change of the given kind, if the bot belongs to a world.
+	 */
+	private void changed(int kind) {
+		if (changeLog != null) {
+			changeLog.record(kind, getId());
+		}
+	}
 }
@@ -0,0 +1,70 @@
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial index of the bot locations used for neighbor queries.
+ *
+ * The cells of the grid are hashed, so its memory depends on the number of bots rather
+ * than the size of the world. The grid is rebuilt each tick, reusing its arrays. The
+ * world keeps two grids and rebuilds the one it did not publish last, so agents still
+ * querying the previous grid are rarely held up by the rebuild.
+ *
+ * A query sees the locations the bots had when the grid was built.
+ */
+public class BotGrid {
+
+	/** default width and height of a grid cell (in pixels) */
+	public static final int CellSize = 32;
+
+	/** cells of the bot locations */
+	private final SpatialHash cells;
+
+	/** bots by their number in the cells */
+	private Bot[] bots = new Bot[16];
+
+	/**
+	 * Creates an empty grid.
+	 */
+	public BotGrid(int cellSize) {
+		this.cells = new SpatialHash(cellSize);
+	}
+
+	/**
+	 * Replaces the bots of the grid with the given bots at their current locations.
+	 */
+	public synchronized void rebuild(List<Bot> bots) {
+		int previous = cells.size();
+		cells.clear();
+		for (Bot b : bots) {
+			int i = cells.add(b.getX(), b.getY());
+			if (i == this.bots.length) {
+				this.bots = Arrays.copyOf(this.bots, 2*i);
+			}
+			this.bots[i] = b;
+		}
+		cells.build();
+
+		// don't keep removed bots alive
+		if (cells.size() < previous) {
+			Arrays.fill(this.bots, cells.size(), previous, null);
+		}
+	}
+
+	/**
+	 * Adds the bots whose location lies within the given box (inclusive) to result.
+	 */
+	public synchronized List<Bot> query(int minX, int minY, int maxX, int maxY, List<Bot> result) {
+		Bot[] bots = this.bots;
+		cells.query(minX, minY, maxX, maxY, i -> result.add(bots[i]));
+		return result;
+	}
+
+	/**
+	 * Returns the number of bots in the grid.
+	 */
+	public synchronized int size() {
+		return cells.size();
+	}
+}
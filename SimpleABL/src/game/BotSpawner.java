@@ -0,0 +1,183 @@
+package game;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates batches of bots with configurable placement, trust levels and formation
+ * slots, and adds each batch to a world at once.
+ *
+ * All random choices are drawn from the given Random, so a spawner with a seeded
+ * Random places the same bots every time.
+ *
+ * Usage: new BotSpawner(new Random(seed)).setPlacement(Placement.CLUSTER).spawn(world, 1000);
+ */
+public class BotSpawner {
+
+	/** how the bots are placed */
+	public enum Placement {
+		/** all at the center */
+		FIXED,
+		/** uniformly over the world */
+		UNIFORM,
+		/** normally distributed around the center, with the spread as standard deviation */
+		CLUSTER,
+		/** on a square grid centered on the center, the spread apart */
+		GRID,
+		/** on a circle around the center, with the spread as radius */
+		RING
+	}
+
+	/** attempts at finding a location outside the walls before giving up on a bot */
+	private static final int Attempts = 100;
+
+	private final Random random;
+
+	private Placement placement = Placement.UNIFORM;
+
+	/** center of the placement, null for the center of the world */
+	private Point center = null;
+
+	/** spread of the placement (in pixels) */
+	private int spread = 50;
+
+	/** range of the trust levels, inclusive */
+	private int minTrust = -80;
+	private int maxTrust = 100;
+
+	/** number of formation slots assigned in turn, 0 leaves the slots at 0 */
+	private int formationSlots = 0;
+
+	/** should bots be kept out of the walls? */
+	private boolean avoidWalls = true;
+
+	/**
+	 * Creates a spawner drawing from the given random numbers.
+	 */
+	public BotSpawner(Random random) {
+		this.random = random;
+	}
+
+	public BotSpawner setPlacement(Placement placement) {
+		this.placement = placement;
+		return this;
+	}
+
+	/**
+	 * Sets the center of the placement, null for the center of the world.
+	 */
+	public BotSpawner setCenter(Point center) {
+		this.center = center;
+		return this;
+	}
+
+	public BotSpawner setSpread(int spread) {
+		this.spread = spread;
+		return this;
+	}
+
+	/**
+	 * Sets the range of the trust levels, drawn uniformly from min to max inclusive.
+	 */
+	public BotSpawner setTrust(int min, int max) {
+		this.minTrust = min;
+		this.maxTrust = max;
+		return this;
+	}
+
+	/**
+	 * Assigns the formation slots 0 to slots - 1 in turn, 0 leaves the slots at 0.
+	 */
+	public BotSpawner setFormationSlots(int slots) {
+		this.formationSlots = slots;
+		return this;
+	}
+
+	public BotSpawner setAvoidWalls(boolean avoidWalls) {
+		this.avoidWalls = avoidWalls;
+		return this;
+	}
+
+	/**
+	 * Creates the bots and adds them to the world in one batch, returns the bots added.
+	 *
+	 * Bots for which no location outside the walls was found are left out.
+	 */
+	public List<Bot> spawn(World world, int count) {
+		Point dimensions = world.getDimensions();
+		Point c = center != null ? center : new Point(dimensions.x/2, dimensions.y/2);
+		int columns = (int)Math.ceil(Math.sqrt(count));
+
+		List<Bot> batch = new ArrayList<Bot>(count);
+		for (int i = 0; i < count; i++) {
+			Point location = place(world, dimensions, c, i, count, columns);
+			if (location == null) {
+				continue;
+			}
+
+			Bot b = world.createBot();
+			b.setLocation(location);
+			b.setTrust(minTrust + random.nextInt(maxTrust - minTrust + 1));
+			if (formationSlots > 0) {
+				b.setFormPos(i % formationSlots);
+			}
+			batch.add(b);
+		}
+
+		if (batch.size() < count) {
+			Log.warn("Spawned %d of %d bots, no room outside the walls for the others", batch.size(), count);
+		}
+		world.addBots(batch);
+		return batch;
+	}
+
+	/**
+	 * Returns the location of the i-th bot, or null if it would only fit inside a wall.
+	 */
+	private Point place(World world, Point dimensions, Point c, int i, int count, int columns) {
+		int maxX = Math.max(1, dimensions.x - Bot.Size);
+		int maxY = Math.max(1, dimensions.y - Bot.Size);
+
+		for (int attempt = 0; attempt < Attempts; attempt++) {
+			int x;
+			int y;
+			switch (placement) {
+			case UNIFORM:
+				x = random.nextInt(maxX);
+				y = random.nextInt(maxY);
+				break;
+			case CLUSTER:
+				x = c.x + (int)Math.round(random.nextGaussian()*spread);
+				y = c.y + (int)Math.round(random.nextGaussian()*spread);
+				break;
+			case GRID:
+				x = c.x + (i % columns - columns/2)*spread;
+				y = c.y + (i / columns - columns/2)*spread;
+				break;
+			case RING:
+				double angle = 2*Math.PI*i/count;
+				x = c.x + (int)Math.round(Math.cos(angle)*spread);
+				y = c.y + (int)Math.round(Math.sin(angle)*spread);
+				break;
+			default:
+				x = c.x;
+				y = c.y;
+				break;
+			}
+			x = Math.max(0, Math.min(maxX, x));
+			y = Math.max(0, Math.min(maxY, y));
+
+			if (!avoidWalls || !world.isWallCollision(x, y, Bot.Size)) {
+				return new Point(x, y);
+			}
+
+			// only random placements find another location on the next attempt
+			if (placement != Placement.UNIFORM && placement != Placement.CLUSTER) {
+				return null;
+			}
+		}
+		return null;
+	}
+}
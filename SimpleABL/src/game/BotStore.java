@@ -0,0 +1,76 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The state of the bots of a world, one row per bot kept outside the Java heap.
+ *
+ * A Bot is a view of its row that names the fields, so the heap holds one small object
+ * per bot however much state it has, and passes over one field of many bots read
+ * consecutive memory. Rows of bots that are dropped are reused by new bots.
+ *
+ * Rows are written by the world and the agents at the same time like the fields of an
+ * object would be; allocating and freeing rows synchronizes.
+ */
+public class BotStore extends EntityStore {
+
+	/** the columns */
+	final int id = addIntColumn();
+	final int x = addIntColumn();
+	final int y = addIntColumn();
+	final int trajectoryX = addIntColumn();
+	final int trajectoryY = addIntColumn();
+	final int potentialX = addIntColumn();
+	final int potentialY = addIntColumn();
+	final int wanderingX = addIntColumn();
+	final int wanderingY = addIntColumn();
+	final int shotRound = addIntColumn();
+	final int movedRound = addIntColumn();
+	final int trustUpdatedRound = addIntColumn();
+	final int firedRound = addIntColumn();
+	final int trust = addIntColumn();
+	final int formPos = addIntColumn();
+	final int rgb = addIntColumn();
+
+	/** the flags in the low byte, the size in the next one and the hits in the high half */
+	final int state = addIntColumn();
+
+	/** rows of dropped bots */
+	private int[] freeRows = new int[16];
+	private int freeRowCount = 0;
+
+	/**
+	 * Returns an unused row, its fields are reset by the bot that takes it.
+	 */
+	synchronized int allocate() {
+		if (freeRowCount > 0) {
+			return freeRows[--freeRowCount];
+		}
+		return addRow();
+	}
+
+	/**
+	 * Makes the row of a dropped bot available for a new bot.
+	 */
+	synchronized void free(int row) {
+		if (freeRowCount == freeRows.length) {
+			freeRows = Arrays.copyOf(freeRows, 2*freeRowCount);
+		}
+		freeRows[freeRowCount++] = row;
+	}
+
+	/**
+	 * Returns the number of rows in use.
+	 */
+	public synchronized int getBotCount() {
+		return size() - freeRowCount;
+	}
+
+	int get(int column, int row) {
+		return getInt(column, row);
+	}
+
+	void set(int column, int row, int value) {
+		setInt(column, row, value);
+	}
+}
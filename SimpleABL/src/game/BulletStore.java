@@ -0,0 +1,96 @@
+package game;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+
+import game.World.bulletorigin;
+import game.ecs.Component;
+import game.ecs.Entities;
+
+/**
+ * The bullets of a world, an entity table with positions, velocities, colliders and
+ * the side that fired them as faction.
+ *
+ * Firing a bullet writes a row instead of allocating an object, and the systems of the
+ * world move, sweep and cull the rows, so heavy firing creates no garbage.
+ *
+ * The world updates the bullets while agents fire and hit them, so lock the store
+ * while reading several bullets:
+ *   synchronized (bullets) { for (int i = 0; i < bullets.size(); i++) ... }
+ */
+public class BulletStore extends Entities {
+
+	private static final bulletorigin[] Origins = bulletorigin.values();
+
+	public BulletStore() {
+		super(Component.POSITION, Component.VELOCITY, Component.COLLIDER, Component.FACTION);
+	}
+
+	/**
+	 * Adds a bullet that will move from the source towards the target, returns false and
+	 * adds nothing if source and target are the same.
+	 */
+	public synchronized boolean fire(Point source, Point target, bulletorigin from) {
+		double dirX = target.x - source.x;
+		double dirY = target.y - source.y;
+		double magnitude = Math.sqrt(dirX*dirX + dirY*dirY);
+		if (magnitude == 0) {
+			return false;
+		}
+
+		add(source.x, source.y, Bullet.BulletSpeed*dirX/magnitude, Bullet.BulletSpeed*dirY/magnitude, from);
+		return true;
+	}
+
+	/**
+	 * Adds a bullet at the given position and trajectory, returns its row.
+	 */
+	public synchronized int add(double x, double y, double dx, double dy, bulletorigin from) {
+		int row = create();
+		setPosition(row, x, y);
+		setVelocity(row, dx, dy);
+		setSize(row, Bullet.Size, Bullet.Size);
+		setFaction(row, from.ordinal());
+		return row;
+	}
+
+	public bulletorigin getOrigin(int i) {
+		return Origins[getFaction(i)];
+	}
+
+	/**
+	 * Returns the number of bytes a checkpoint needs for the bullets.
+	 */
+	synchronized int checkpointSize() {
+		return 4 + size()*Bullet.CheckpointSize;
+	}
+
+	/**
+	 * Writes the bullets to a checkpoint, spent bullets are flagged with 2.
+	 */
+	synchronized void write(ByteBuffer buffer) {
+		buffer.putInt(size());
+		for (int i = 0; i < size(); i++) {
+			buffer.putDouble(getX(i)).putDouble(getY(i));
+			buffer.putDouble(getdX(i)).putDouble(getdY(i));
+			buffer.putDouble(getRange(i));
+			buffer.put((byte)getFaction(i));
+			buffer.put((byte)(isDead(i) ? 2 : 0));
+		}
+	}
+
+	/**
+	 * Adds the bullets written by write().
+	 */
+	synchronized void read(ByteBuffer buffer) {
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			int row = add(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), bulletorigin.PLAYER);
+			setRange(row, buffer.getDouble());
+			setFaction(row, buffer.get());
+			if ((buffer.get() & 2) != 0) {
+				kill(row);
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package game;
+
+import java.awt.Point;
+
+/**
+ * Part of the world shown in the window, scrolled to keep the player in view.
+ *
+ * The camera is centered on its target and clamped to the world bounds, so a viewport
+ * as large as the world never scrolls.
+ */
+public class Camera {
+
+	/** size of the viewport (in pixels) */
+	private final Point viewport;
+
+	/** top left corner of the viewport in world coordinates */
+	private int x = 0;
+	private int y = 0;
+
+	/**
+	 * Creates a camera showing a viewport of the given size.
+	 */
+	public Camera(Point viewport) {
+		this.viewport = new Point(viewport);
+	}
+
+	/**
+	 * Centers the viewport on the box at the given location, keeping it inside the world.
+	 */
+	public void follow(int targetX, int targetY, int targetSize, Point dimensions) {
+		x = targetX + targetSize/2 - viewport.x/2;
+		y = targetY + targetSize/2 - viewport.y/2;
+		x = Math.max(0, Math.min(dimensions.x - viewport.x, x));
+		y = Math.max(0, Math.min(dimensions.y - viewport.y, y));
+	}
+
+	/**
+	 * Does the box overlap the viewport?
+	 */
+	public boolean isVisible(int boxX, int boxY, int width, int height) {
+		return boxX < x + viewport.x && boxX + width > x && boxY < y + viewport.y && boxY + height > y;
+	}
+
+	/**
+	 * Returns the x location of the top left corner of the viewport in the world.
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Returns the y location of the top left corner of the viewport in the world.
+	 */
+	public int getY() {
+		return y;
+	}
+
+	public Point getViewport() {
+		return new Point(viewport);
+	}
+}
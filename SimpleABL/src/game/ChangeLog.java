@@ -0,0 +1,94 @@
+package game;
+
+/**
+ * Stream of the changes made to a world, used by sensors to update working memory
+ * with only what changed since they last sensed.
+ *
+ * Every change gets the next version number. The most recent changes are kept in a
+ * ring buffer; a reader that falls further behind than the buffer holds is told to
+ * rebuild its state from the world instead.
+ */
+public class ChangeLog {
+
+	/** kinds of changes */
+	public static final int BotMoved = 0;
+	public static final int BotShot = 1;
+	public static final int BotSpawned = 2;
+	public static final int BotRemoved = 3;
+	public static final int BotChanged = 4;
+	public static final int PlayerMoved = 5;
+	public static final int BulletFired = 6;
+
+	/** default number of changes kept */
+	public static final int Capacity = 1 << 14;
+
+	/** kind and bot id of the kept changes, indexed by version modulo the capacity */
+	private final byte[] kinds;
+	private final int[] ids;
+
+	/** number of changes recorded so far, which is also the version of the world */
+	private long version = 0;
+
+	/**
+	 * Creates a log keeping the default number of changes.
+	 */
+	public ChangeLog() {
+		this(Capacity);
+	}
+
+	/**
+	 * Creates a log keeping the given number of changes.
+	 */
+	public ChangeLog(int capacity) {
+		this.kinds = new byte[capacity];
+		this.ids = new int[capacity];
+	}
+
+	/**
+	 * Records a change of the given kind, id is the bot id for bot changes and ignored otherwise.
+	 */
+	public synchronized void record(int kind, int id) {
+		int slot = (int)(version % kinds.length);
+		kinds[slot] = (byte)kind;
+		ids[slot] = id;
+		version++;
+	}
+
+	/**
+	 * Records a change of the given kind for each of the bots, at once.
+	 */
+	public synchronized void record(int kind, int[] ids) {
+		for (int id : ids) {
+			int slot = (int)(version % kinds.length);
+			kinds[slot] = (byte)kind;
+			this.ids[slot] = id;
+			version++;
+		}
+	}
+
+	/**
+	 * Returns the number of changes recorded so far.
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Adds the changes after the given version to the change set and sets its version.
+	 *
+	 * @return false if some of the changes are no longer kept and the reader has to rebuild
+	 */
+	public synchronized boolean read(long from, ChangeSet changes) {
+		if (from < 0 || version - from > kinds.length) {
+			changes.setVersion(version);
+			return false;
+		}
+
+		for (long v = from; v < version; v++) {
+			int slot = (int)(v % kinds.length);
+			changes.add(kinds[slot], ids[slot]);
+		}
+		changes.setVersion(version);
+		return true;
+	}
+}
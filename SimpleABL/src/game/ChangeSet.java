@@ -0,0 +1,67 @@
+package game;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Changes of a world between two versions, with repeated changes of a bot merged.
+ */
+public class ChangeSet {
+
+	/** bots that moved, were shot, spawned, removed or otherwise changed */
+	private final Set<Integer> bots = new LinkedHashSet<Integer>();
+
+	private boolean playerMoved = false;
+	private boolean bulletFired = false;
+
+	/** version of the world the changes lead up to */
+	private long version = 0;
+
+	/**
+	 * Adds a change of the given kind from the change log.
+	 */
+	public void add(int kind, int id) {
+		switch (kind) {
+		case ChangeLog.PlayerMoved:
+			playerMoved = true;
+			break;
+		case ChangeLog.BulletFired:
+			bulletFired = true;
+			break;
+		default:
+			bots.add(id);
+		}
+	}
+
+	/**
+	 * Removes all changes.
+	 */
+	public void clear() {
+		bots.clear();
+		playerMoved = false;
+		bulletFired = false;
+	}
+
+	/**
+	 * Returns the ids of the bots that changed, including spawned and removed ones.
+	 */
+	public Set<Integer> getBots() {
+		return bots;
+	}
+
+	public boolean isPlayerMoved() {
+		return playerMoved;
+	}
+
+	public boolean isBulletFired() {
+		return bulletFired;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+}
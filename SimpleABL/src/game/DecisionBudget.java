@@ -0,0 +1,211 @@
+package game;
+
+/**
+ * Caps the time the agent spends on movement decisions in each move round.
+ *
+ * Bots take turns in round robin order of the slots of their ids. At the start of a
+ * round the scheduler estimates how many decisions fit in the budget from the measured
+ * cost of recent decisions and admits a window of slots expected to hold that many
+ * bots. The world reports the bots outside the window as moved, so they are deferred
+ * to a later round and keep their trajectory. If the agent still runs over the budget,
+ * the rest of the round is cut off as well.
+ *
+ * The window slides on by a fraction of its width every round, whether or not the
+ * agent decided for the bots in it, so every bot stays in the window for as many
+ * rounds as the longest think interval of the level of detail scheduler and meets a
+ * round it is due in. The level of detail scheduler keeps a bot due that was deferred
+ * past its round until it decides, and a bot the agent never decides for can't hold
+ * up the others.
+ *
+ * Whether a bot is admitted is computed when it is asked for, so starting a round
+ * takes constant time however many bots there are. As the window is counted in slots,
+ * the bots the level of detail scheduler skips take up room in it: the window grows
+ * while the agent finishes its rounds within the budget and shrinks when it runs out.
+ * The deferred decisions are estimated from the size of the window, so spikes, e.g.
+ * after spawning many bots, show up in the statistics.
+ */
+public class DecisionBudget {
+
+	/** default time for the movement decisions of one round (in nanoseconds) */
+	public static final long Budget = 2000000L;
+
+	/** weight of the latest decision in the cost estimate */
+	private static final double CostWeight = 0.1;
+
+	/** largest factor the window is grown by over the estimated number of decisions */
+	private static final double MaxScale = 64;
+
+	/** time for the decisions of one round, 0 disables the budget */
+	private volatile long budget = Budget;
+
+	/**
+	 * Bots admitted to a move round, published as a whole so the world can ask whether a
+	 * bot is deferred without taking a lock.
+	 */
+	private static final class Window {
+
+		/** move round the window belongs to */
+		final int round;
+
+		/** number of id slots, first slot and number of slots admitted */
+		final int slots;
+		final int start;
+		final int span;
+
+		/** has the round run out of time? */
+		volatile boolean exhausted = false;
+
+		Window(int round, int slots, int start, int span) {
+			this.round = round;
+			this.slots = slots;
+			this.start = start;
+			this.span = span;
+		}
+	}
+
+	/** window of the move round being scheduled */
+	private volatile Window window = new Window(-1, 1, 0, 1);
+
+	/** number of bots in the current round */
+	private int bots = 0;
+
+	/** factor the window is grown by over the estimated number of decisions */
+	private double scale = 1;
+
+	/** decisions the agent made this round */
+	private int decided = 0;
+
+	/** time of the previous decision in this round, 0 before the first one */
+	private long lastDecision = 0;
+
+	/** time of the first decision in this round */
+	private long workStart = 0;
+
+	/** moving average of the time between decisions (in nanoseconds) */
+	private double decisionCost = 0;
+
+	/** statistics */
+	private long deferred = 0;
+	private int lastDeferred = 0;
+	private long roundsOverBudget = 0;
+
+	/**
+	 * Admits the window of bots that fit in the budget to the given move round.
+	 */
+	public synchronized void startRound(World world, int round) {
+		int n = world.getBots().size();
+		int slots = Math.max(1, world.getBotSlots());
+		Window previous = window;
+		int start = previous.start;
+
+		if (previous.round >= 0) {
+			// bots outside the window, and the ones in it without a decision if the round was cut off
+			int admitted = (int)Math.round((double)bots*previous.span/previous.slots);
+			lastDeferred = bots - admitted + (previous.exhausted ? Math.max(0, admitted - decided) : 0);
+			deferred += lastDeferred;
+
+			if (previous.exhausted) {
+				scale = Math.max(1, scale/2);
+			}
+			else if (previous.span < previous.slots) {
+				scale = Math.min(MaxScale, scale*2);
+			}
+
+			// slide on so every bot spends the longest think interval in the window
+			start = (start + Math.max(1, previous.span/LodScheduler.MaxInterval)) % previous.slots;
+		}
+
+		int limit = n;
+		if (budget > 0 && decisionCost > 0) {
+			limit = (int)Math.max(1, Math.min(n, budget/decisionCost));
+		}
+
+		this.bots = n;
+		decided = 0;
+		lastDecision = 0;
+		int span = limit >= n ? slots : (int)Math.max(1, Math.min(slots, Math.ceil(limit*scale*slots/n)));
+		window = new Window(round, slots, start % slots, span);
+	}
+
+	/**
+	 * Is the movement of the bot with the given id deferred in the given move round?
+	 *
+	 * Reads the published window only, so the world can ask for every bot without locking.
+	 */
+	public boolean isDeferred(int id, int round) {
+		Window w = window;
+		if (round != w.round) {
+			return false;
+		}
+		return w.exhausted || Math.floorMod(World.botIdSlot(id) - w.start, w.slots) >= w.span;
+	}
+
+	/**
+	 * Records a movement decision of the agent for the bot in the given move round,
+	 * cutting off the rest of the round once it runs over the budget.
+	 */
+	public synchronized void decided(Bot bot, int round) {
+		Window w = window;
+		if (round != w.round) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		if (lastDecision == 0) {
+			workStart = now;
+		}
+		else {
+			double cost = now - lastDecision;
+			decisionCost = decisionCost == 0 ? cost : decisionCost*(1 - CostWeight) + cost*CostWeight;
+		}
+		lastDecision = now;
+		decided++;
+
+		if (budget > 0 && !w.exhausted && now - workStart > budget) {
+			w.exhausted = true;
+			roundsOverBudget++;
+		}
+	}
+
+	/**
+	 * Returns the time for the decisions of one round (in nanoseconds).
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the time for the decisions of one round (in nanoseconds), 0 disables the budget.
+	 */
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the estimated time of a single decision (in nanoseconds).
+	 */
+	public synchronized double getDecisionCost() {
+		return decisionCost;
+	}
+
+	/**
+	 * Returns the total number of decisions deferred to a later round.
+	 */
+	public synchronized long getDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Returns the number of decisions deferred in the last completed round.
+	 */
+	public synchronized int getLastDeferred() {
+		return lastDeferred;
+	}
+
+	/**
+	 * Returns the number of rounds the agent ran out of time.
+	 */
+	public synchronized long getRoundsOverBudget() {
+		return roundsOverBudget;
+	}
+}
@@ -0,0 +1,190 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Table of fixed size entity records kept outside the Java heap, one column per field.
+ *
+ * Each column is a list of direct buffers holding a chunk of rows each, so the garbage
+ * collector sees a handful of buffer objects however many entities there are, and a
+ * pass over one field reads consecutive memory. Subclasses declare their columns in the
+ * constructor and give the fields names through accessors taking the row.
+ *
+ * Rows are numbered from 0 to size() - 1. Adding a row past the capacity adds a chunk
+ * to every column, removing rows moves the rows after them down. Chunks never move, so
+ * a row written while another thread adds rows keeps its value.
+ *
+ * Note: the store is not thread safe, subclasses shared between threads synchronize.
+ */
+public class EntityStore {
+
+	/** rows of a chunk, a power of two */
+	public static final int ChunkRows = 1 << 10;
+
+	private static final int ChunkBits = Integer.numberOfTrailingZeros(ChunkRows);
+	private static final int ChunkMask = ChunkRows - 1;
+
+	/** width of each column (in bytes) */
+	private int[] widths = new int[0];
+
+	/** the chunks of each column */
+	private ByteBuffer[][] columns = new ByteBuffer[0][];
+
+	private int size = 0;
+	private int capacity = ChunkRows;
+
+	/**
+	 * Adds a column of ints, returns its number.
+	 */
+	protected int addIntColumn() {
+		return addColumn(4);
+	}
+
+	/**
+	 * Adds a column of doubles, returns its number.
+	 */
+	protected int addDoubleColumn() {
+		return addColumn(8);
+	}
+
+	/**
+	 * Adds a column of bytes, returns its number.
+	 */
+	protected int addByteColumn() {
+		return addColumn(1);
+	}
+
+	private int addColumn(int width) {
+		if (size > 0) {
+			throw new IllegalStateException("Columns must be added before rows");
+		}
+
+		int column = columns.length;
+		widths = Arrays.copyOf(widths, column + 1);
+		widths[column] = width;
+		columns = Arrays.copyOf(columns, column + 1);
+		columns[column] = new ByteBuffer[] { allocate(ChunkRows*width) };
+		return column;
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Appends a row with all fields 0, returns its number.
+	 */
+	protected int addRow() {
+		if (size == capacity) {
+			grow();
+		}
+
+		int row = size++;
+		for (int c = 0; c < columns.length; c++) {
+			int width = widths[c];
+			ByteBuffer chunk = columns[c][row >>> ChunkBits];
+			int offset = (row & ChunkMask)*width;
+			for (int b = 0; b < width; b++) {
+				chunk.put(offset + b, (byte)0);
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Adds a chunk to every column.
+	 */
+	private void grow() {
+		int chunks = capacity/ChunkRows + 1;
+		for (int c = 0; c < columns.length; c++) {
+			ByteBuffer[] grown = Arrays.copyOf(columns[c], chunks);
+			grown[chunks - 1] = allocate(ChunkRows*widths[c]);
+			columns[c] = grown;
+		}
+		capacity += ChunkRows;
+	}
+
+	/**
+	 * Moves the row from to the row to, overwriting it.
+	 */
+	protected void moveRow(int from, int to) {
+		for (int c = 0; c < columns.length; c++) {
+			int width = widths[c];
+			if (width == 8) {
+				setLong(c, to, getLong(c, from));
+			}
+			else if (width == 4) {
+				setInt(c, to, getInt(c, from));
+			}
+			else {
+				setByte(c, to, getByte(c, from));
+			}
+		}
+	}
+
+	/**
+	 * Removes the rows from the given one on, keeping the first ones.
+	 */
+	protected void truncate(int rows) {
+		size = Math.min(size, rows);
+	}
+
+	/**
+	 * Removes all rows.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes of memory outside the heap held by the columns.
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (int c = 0; c < columns.length; c++) {
+			bytes += (long)capacity*widths[c];
+		}
+		return bytes;
+	}
+
+	protected int getInt(int column, int row) {
+		return columns[column][row >>> ChunkBits].getInt((row & ChunkMask)*4);
+	}
+
+	protected void setInt(int column, int row, int value) {
+		columns[column][row >>> ChunkBits].putInt((row & ChunkMask)*4, value);
+	}
+
+	private long getLong(int column, int row) {
+		return columns[column][row >>> ChunkBits].getLong((row & ChunkMask)*8);
+	}
+
+	private void setLong(int column, int row, long value) {
+		columns[column][row >>> ChunkBits].putLong((row & ChunkMask)*8, value);
+	}
+
+	protected double getDouble(int column, int row) {
+		return columns[column][row >>> ChunkBits].getDouble((row & ChunkMask)*8);
+	}
+
+	protected void setDouble(int column, int row, double value) {
+		columns[column][row >>> ChunkBits].putDouble((row & ChunkMask)*8, value);
+	}
+
+	protected byte getByte(int column, int row) {
+		return columns[column][row >>> ChunkBits].get(row & ChunkMask);
+	}
+
+	protected void setByte(int column, int row, byte value) {
+		columns[column][row >>> ChunkBits].put(row & ChunkMask, value);
+	}
+}
@@ -0,0 +1,173 @@
+package game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The flight recorder events of AgentEvents.
+ *
+ * Note: only AgentEvents may use this class, and only if the flight recorder is available.
+ */
+final class FlightEvents {
+
+	@Name("abl.DecisionCycle")
+	@Label("Decision Cycle")
+	@Category("ABL")
+	@Description("From the start of a decision cycle of an agent to the start of the next one")
+	static class DecisionCycle extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Leaf Steps")
+		int leafSteps;
+	}
+
+	@Name("abl.BehaviorSelected")
+	@Label("Behavior Selected")
+	@Category("ABL")
+	@Description("A behavior was chosen for a goal and started executing")
+	static class BehaviorSelected extends Event {
+		@Label("Agent")
+		String agent;
+
+		@Label("Behavior")
+		String behavior;
+
+		@Label("Signature")
+		String signature;
+	}
+
+	@Name("abl.Act")
+	@Label("Act")
+	@Category("ABL")
+	@Description("Execution of a primitive act")
+	static class Act extends Event {
+		@Label("Action")
+		String action;
+	}
+
+	@Name("abl.Sense")
+	@Label("Sense")
+	@Category("ABL")
+	@Description("A sensor updating working memory, for a precondition or continuously")
+	static class Sense extends Event {
+		@Label("Sensor")
+		String sensor;
+
+		@Label("Kind")
+		String kind;
+	}
+
+	@Name("abl.Precondition")
+	@Label("Precondition")
+	@Category("ABL")
+	@Description("Evaluation of the precondition of a behavior")
+	static class Precondition extends Event {
+		@Label("Behavior")
+		String behavior;
+
+		@Label("Result")
+		boolean result;
+	}
+
+	private static final EventType BehaviorSelectedType = EventType.getEventType(BehaviorSelected.class);
+	private static final EventType PreconditionType = EventType.getEventType(Precondition.class);
+
+	private FlightEvents() {
+	}
+
+	static Object beginDecisionCycle() {
+		DecisionCycle event = new DecisionCycle();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	static void endDecisionCycle(Object e, String agent, int leafSteps) {
+		DecisionCycle event = (DecisionCycle)e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.agent = agent;
+			event.leafSteps = leafSteps;
+			event.commit();
+		}
+	}
+
+	static boolean isBehaviorSelectedEnabled() {
+		return BehaviorSelectedType.isEnabled();
+	}
+
+	static void behaviorSelected(String agent, String behavior, String signature) {
+		BehaviorSelected event = new BehaviorSelected();
+		event.agent = agent;
+		event.behavior = behavior;
+		event.signature = signature;
+		event.commit();
+	}
+
+	static Object beginAct() {
+		Act event = new Act();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	static void endAct(Object e, String action) {
+		Act event = (Act)e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.action = action;
+			event.commit();
+		}
+	}
+
+	static Object beginSense() {
+		Sense event = new Sense();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	static void endSense(Object e, String sensor, String kind) {
+		Sense event = (Sense)e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.sensor = sensor;
+			event.kind = kind;
+			event.commit();
+		}
+	}
+
+	static boolean isPreconditionEnabled() {
+		return PreconditionType.isEnabled();
+	}
+
+	static Object beginPrecondition() {
+		Precondition event = new Precondition();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	static void endPrecondition(Object e, String behavior, boolean result) {
+		Precondition event = (Precondition)e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.behavior = behavior;
+			event.result = result;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package game;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * Shortest path directions from every cell of a window around a single target cell
+ * towards it.
+ *
+ * The field is computed with one breadth first search from the target over the cells
+ * of the window that are not covered by walls. Afterwards any bot can look up the next
+ * cell on its path in constant time. The window keeps the field small however large
+ * the world is; bots outside of it are far from the target and have no path. A field
+ * is never modified after it is computed, so the game thread can publish a new field
+ * while agents are still reading the old one.
+ */
+public class FlowField {
+
+	/** default width and height of a cell (in pixels) */
+	public static final int CellSize = Bot.Size;
+
+	/** default distance from the target the window reaches in each direction (in pixels) */
+	public static final int Reach = 1024;
+
+	/** neighbor offsets, axis moves first so straight paths are preferred */
+	private static final int[] DX = { 0, 0, -1, 1, -1, 1, -1, 1 };
+	private static final int[] DY = { -1, 1, 0, 0, -1, -1, 1, 1 };
+
+	/** index of the offset pointing the opposite way */
+	private static final byte[] Opposite = { 1, 0, 3, 2, 7, 6, 5, 4 };
+
+	/** marks a cell without a next step */
+	private static final byte None = -1;
+
+	/** width and height of a cell */
+	private final int cellSize;
+
+	/** number of columns and rows of the world */
+	private final int worldCols;
+	private final int worldRows;
+
+	/** first column and row of the window */
+	private final int originCol;
+	private final int originRow;
+
+	/** number of columns and rows of the window */
+	private final int cols;
+	private final int rows;
+
+	/** cell of the window containing the target */
+	private final int targetCell;
+
+	/** direction index of the next step for each cell of the window, or None */
+	private final byte[] next;
+
+	/**
+	 * Computes the field towards the object at the given location, avoiding the walls of the game,
+	 * over the window reaching the given distance from the object, moved inside the world.
+	 *
+	 * Locations refer to the top left corner of an object of the given size.
+	 */
+	public static FlowField compute(World world, int cellSize, int reach, int targetX, int targetY, int targetSize) {
+		Point dimensions = world.getDimensions();
+		int worldCols = dimensions.x/cellSize + 1;
+		int worldRows = dimensions.y/cellSize + 1;
+		int cols = Math.min(worldCols, 2*(reach/cellSize) + 1);
+		int rows = Math.min(worldRows, 2*(reach/cellSize) + 1);
+		int originCol = Math.max(0, Math.min(worldCols - cols, (targetX + targetSize/2)/cellSize - cols/2));
+		int originRow = Math.max(0, Math.min(worldRows - rows, (targetY + targetSize/2)/cellSize - rows/2));
+
+		boolean[] blocked = new boolean[cols*rows];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				blocked[r*cols + c] = world.isWallCollision((originCol + c)*cellSize, (originRow + r)*cellSize, cellSize);
+			}
+		}
+
+		return new FlowField(blocked, cellSize, worldCols, worldRows, originCol, originRow, cols, rows,
+				targetX, targetY, targetSize);
+	}
+
+	/**
+	 * Runs the search from the cell of the target over the cells of the window that are not blocked.
+	 *
+	 * The window of the given origin and size must lie within the world and contain the target.
+	 */
+	public FlowField(boolean[] blocked, int cellSize, int worldCols, int worldRows, int originCol, int originRow,
+			int cols, int rows, int targetX, int targetY, int targetSize) {
+		this.cellSize = cellSize;
+		this.worldCols = worldCols;
+		this.worldRows = worldRows;
+		this.originCol = originCol;
+		this.originRow = originRow;
+		this.cols = cols;
+		this.rows = rows;
+		this.targetCell = cellOf(targetX, targetY, targetSize);
+		if (targetCell < 0) {
+			throw new IllegalArgumentException("Target outside of the window");
+		}
+		this.next = new byte[cols*rows];
+		Arrays.fill(next, None);
+
+		boolean[] visited = new boolean[cols*rows];
+		int[] queue = new int[cols*rows];
+		int head = 0;
+		int tail = 0;
+
+		visited[targetCell] = true;
+		queue[tail++] = targetCell;
+
+		while (head < tail) {
+			int cell = queue[head++];
+			int c = cell % cols;
+			int r = cell / cols;
+
+			for (int d = 0; d < DX.length; d++) {
+				int nc = c + DX[d];
+				int nr = r + DY[d];
+				if (nc < 0 || nc >= cols || nr < 0 || nr >= rows) {
+					continue;
+				}
+
+				int neighbor = nr*cols + nc;
+				if (visited[neighbor] || blocked[neighbor]) {
+					continue;
+				}
+
+				if (DX[d] != 0 && DY[d] != 0 &&
+						(blocked[r*cols + nc] || blocked[nr*cols + c])) {
+					continue;
+				}//don't cut corners of walls
+
+				visited[neighbor] = true;
+				next[neighbor] = Opposite[d];
+				queue[tail++] = neighbor;
+			}
+		}
+	}
+
+	/**
+	 * Is the object of the given size at the given location in the target cell of this field?
+	 */
+	public boolean isTarget(int x, int y, int size) {
+		return cellOf(x, y, size) == targetCell;
+	}
+
+	/**
+	 * Returns the location an object at the given position should head for next, or null if
+	 * it is already in the target cell, outside of the window or has no path to the target.
+	 *
+	 * Locations refer to the top left corner of an object of the given size.
+	 */
+	public Point getWaypoint(int x, int y, int size) {
+		int cell = cellOf(x, y, size);
+		if (cell < 0) {
+			return null;
+		}
+
+		byte d = next[cell];
+		if (d == None) {
+			return null;
+		}
+
+		int c = originCol + cell % cols + DX[d];
+		int r = originRow + cell / cols + DY[d];
+		return new Point(c*cellSize + (cellSize - size)/2, r*cellSize + (cellSize - size)/2);
+	}
+
+	/**
+	 * Returns the cell of the window containing the center of an object at the given
+	 * location, -1 if it is outside of the window.
+	 */
+	private int cellOf(int x, int y, int size) {
+		int c = Math.max(0, Math.min(worldCols - 1, (x + size/2)/cellSize)) - originCol;
+		int r = Math.max(0, Math.min(worldRows - 1, (y + size/2)/cellSize)) - originRow;
+		if (c < 0 || c >= cols || r < 0 || r >= rows) {
+			return -1;
+		}
+		return r*cols + c;
+	}
+}
@@ -6,6 +6,7 @@ import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import javax.swing.JFrame;
@@ -13,98 +14,121 @@ import javax.swing.JPanel;
 
 import abl.generated.ChaserAgent;
 //import abl.generated.Test;
+import game.ecs.Entities;
 import game.input.*;
 /**
  *  Simple "game" for showing how to interface an ABL agent.
  *
+ *  Displays a world in a window and drives its player from the keyboard.
+ *
  * @author Ben Weber 3-7-11
  */
 public class GameEngine extends JPanel implements KeyListener {
-	
-	/** scene dimensions */
-	private Point dimensions = new Point(640, 480);
 
-	/** location of the player character */
-	private Point playerLocation = new Point((int)(dimensions.x - dimensions.x/4), (int)(dimensions.y - dimensions.y/4));
+	/** latency of drawing the scene */
+	private static final Histogram PaintTime = Metrics.timer("paint");
 
-	/** trajectory of the player character */
-	private Point playerTrajectory = new Point(0, 0);
+	/** entities drawn each frame */
+	private static final Histogram DrawnCount = Metrics.counts("paint.drawn");
 
-	/** location of the chaser */
-	private Point chaserLocation = new Point((int)(dimensions.x*Math.random()), (int)(dimensions.y*Math.random()));
+	/** largest window shown when no viewport is given */
+	private static final Point DefaultViewport = new Point(640, 480);
 
-	/** the list of bots */
-	private ArrayList<Bot> bots = new ArrayList<Bot>();
-	
-	/** the list of walls */
-	private ArrayList<Wall> walls = new ArrayList<Wall>();
-	
-	/** trajectory of the chaser */
-	private Point chaserTrajectory = new Point(0, 0);
+	/** the simulated world */
+	private World world;
 
 	/** size of the player character */
-	private static final int playerSize = 10;
+	private static final int playerSize = World.PlayerSize;
 
 	/** size of the bullets */
-	private static final int bulletSize = 4;
-
-	/** speed of the player character */
-	private static final int PlayerSpeed = 4;
+	private static final int bulletSize = Bullet.Size;
 
 	/** speed of the player character */
-	public static final int BotSpeed = 2;
+	private static final int PlayerSpeed = World.PlayerSpeed;
 
 	/** keys held down */
 	private boolean[] keyPresses = new boolean[256];
 
-	/** a reference to the game */
-	private static GameEngine gameEngine;
-
-	/** did the player fire a bullet */
-	private boolean spawnBullet = false;
+	/** holds the input classes */
+	private ArrayList<IInput> inputs = new ArrayList<IInput>();
 
-	/** bullets which have been fired by both players */
-	private ArrayList<Bullet> bullets = new ArrayList<Bullet>();
+	/** performance overlay, toggled with ToggleHud */
+	private Hud hud;
 
-	/** spawn a chaser bullet? */
-	private boolean chaserBullet = false;
+	/** part of the world shown in the window */
+	private Camera camera;
 
-	/** source position of the chaser bullet */
-	private Point bulletSource;
+	/** bots found inside the viewport, reused every frame */
+	private ArrayList<Bot> visibleBots = new ArrayList<Bot>();
 
-	/** target position of the chaser bullet */
-	private Point bulletTarget;
-	
-	/** who's bullet is it? */
-	public enum bulletorigin {
-		PLAYER, 
-		FACTION1, 
-		FACTION2
-	}
-
-	/** holds the input classes */
-	private ArrayList<IInput> inputs = new ArrayList<IInput>();
-	
 	/**
 	 * Starts the game.
+	 *
+	 * The phase timings are served on http://localhost:port/metrics if the system
+	 * property metrics.port is set, and printed every metrics.dump milliseconds if set.
+	 * The behavior tree is streamed to AbtViewer on port abt.port if set.
+	 * Bots despawn at trust -100 or after 20 hits, so long sessions don't grow without bound.
+	 *
+	 * If the system properties world.width and world.height are set, the player roams a
+	 * stress scenario of that size with world.bots bots (1000 by default). The window
+	 * shows viewport.width by viewport.height pixels of the world (640x480 by default).
 	 */
-	public static void main(String[] args) {
-		gameEngine = new GameEngine();
+	public static void main(String[] args) throws IOException {
+		Integer port = Integer.getInteger("metrics.port");
+		if (port != null) {
+			System.out.println("Serving metrics on http://localhost:" + Metrics.serve(port) + Metrics.Path);
+		}
+		Long dump = Long.getLong("metrics.dump");
+		if (dump != null && dump > 0) {
+			Metrics.dump(dump, System.out);
+		}
+
+		Integer abtPort = Integer.getInteger("abt.port");
+		if (abtPort != null) {
+			System.out.println("Inspecting behavior trees on port " + AbtInspector.serve(abtPort));
+		}
+
+		World world;
+		Integer width = Integer.getInteger("world.width");
+		Integer height = Integer.getInteger("world.height");
+		if (width != null && height != null) {
+			int bots = Integer.getInteger("world.bots", 1000);
+			world = new StressScenario(System.currentTimeMillis())
+					.setDimensions(new Point(width, height))
+					.setBots(bots)
+					.setWalls(bots/10)
+					.build();
+		}
+		else {
+			world = new World();
+		}
+		world.setDespawnRules(-100, 20);
+
+		Point viewport = new Point(Integer.getInteger("viewport.width", DefaultViewport.x),
+				Integer.getInteger("viewport.height", DefaultViewport.y));
+		GameEngine gameEngine = new GameEngine(world, viewport);
 		gameEngine.startAgent();
 	}
 
 	/**
-	 * Returns a reference to the game.
+	 * Instantiates the game and places the instance in a JFrame showing the world, or
+	 * 640x480 pixels of it if it is larger.
 	 */
-	public static GameEngine getInstance() {
-		return gameEngine;
+	public GameEngine(World world) {
+		this(world, DefaultViewport);
 	}
 
 	/**
-	 * Instantiates the game and places the instance in a JFrame.
+	 * Instantiates the game and places the instance in a JFrame showing a viewport of
+	 * the given size that follows the player, no larger than the world.
 	 */
-	public GameEngine() {
-		setPreferredSize(new Dimension(dimensions.x, dimensions.y));
+	public GameEngine(World world, Point viewport) {
+		this.world = world;
+		this.hud = new Hud(world);
+		Point dimensions = world.getDimensions();
+		Point size = new Point(Math.min(viewport.x, dimensions.x), Math.min(viewport.y, dimensions.y));
+		this.camera = new Camera(size);
+		setPreferredSize(new Dimension(size.x, size.y));
 		JFrame frame = new JFrame("ABL Chaser");
 		frame.add(this);
 		frame.pack();
@@ -113,17 +137,9 @@ public class GameEngine extends JPanel implements KeyListener {
 		frame.setResizable(false);
 		frame.setVisible(true);
 
-		
+
 		this.initializeInputs();
-		
-		// spawn a single default bot
-		Bot b = new Bot();
-		b.setLocation(new Point(dimensions.x/2, dimensions.y/2));
-		bots.add(b);
-	
-		Wall w = new Wall(new Point(60, 60), 100, 60);
-		walls.add(w);
-		
+
 		// spawn an update thread
 		new Thread() {
 			public void run() {
@@ -146,103 +162,74 @@ public class GameEngine extends JPanel implements KeyListener {
 	public void startAgent() {
 		 ChaserAgent agent = new ChaserAgent();
 		 //Test agent = new Test();
+		 world.attach(agent);
+		 hud.setAgent(agent);
 		 agent.startBehaving();
 	}
 
 	/**
-	 * Updates the positions of objects, and draws the scene.
+	 * Updates the positions of objects, and draws the part of the scene in the viewport.
+	 *
+	 * Bots, bullets and walls are looked up in the spatial indexes of the world, so the
+	 * cost of drawing depends on what is in view rather than in the world.
 	 */
 	public void paint(Graphics g) {
-		updateLocations();
-		updateBullets();
-	
+		updatePlayerTrajectory();
+		world.tick();
+
+		long start = System.nanoTime();
 		super.paint(g);
 
+		Point playerLocation = world.getPlayerLocation();
+		camera.follow(playerLocation.x, playerLocation.y, playerSize, world.getDimensions());
+		int cameraX = camera.getX();
+		int cameraY = camera.getY();
+		Point viewport = camera.getViewport();
+		g.translate(-cameraX, -cameraY);
+		int drawn = 1;
+
 		g.setColor(Color.BLUE);
 		g.fillRect(playerLocation.x, playerLocation.y, playerSize, playerSize);
-	
-		for (Bot bot : this.bots) {
-			g.setColor(bot.getColor());
+
+		// bots of the same trust level share a color, only create one when it changes
+		Color color = null;
+		visibleBots.clear();
+		world.getBotGrid().query(cameraX - Bot.Size, cameraY - Bot.Size,
+				cameraX + viewport.x, cameraY + viewport.y, visibleBots);
+		for (Bot bot : visibleBots) {
+			if (color == null || color.getRGB() != bot.getRGB()) {
+				color = new Color(bot.getRGB());
+				g.setColor(color);
+			}
 			g.fillRect(bot.getX(), bot.getY(), bot.getSize(), bot.getSize());
 		}
-		
+		drawn += visibleBots.size();
+
 		g.setColor(Color.BLACK);
-		for (Bullet bullet : bullets) {
-			g.fillRect(bullet.getX() + (playerSize - bulletSize)/2, bullet.getY() + (playerSize - bulletSize)/2, bulletSize, bulletSize);
+		BulletStore bullets = world.getBullets();
+		int offset = (playerSize - bulletSize)/2;
+		synchronized (bullets) {
+			drawn += world.getBulletIndex().query(cameraX - offset - bulletSize, cameraY - offset - bulletSize,
+					cameraX + viewport.x, cameraY + viewport.y,
+					i -> g.fillRect((int)bullets.getX(i) + offset, (int)bullets.getY(i) + offset, bulletSize, bulletSize));
 		}
-		
+
 		g.setColor(new Color(244, 66, 206));;
-		for (Wall wall : walls) {
-			g.fillRect(wall.getX(), wall.getY(), wall.getWidth(), wall.getHeight());
-		}
-		
+		WallMap wallMap = world.getWallMap();
+		Entities walls = wallMap.getWalls();
+		drawn += wallMap.query(cameraX, cameraY, cameraX + viewport.x, cameraY + viewport.y,
+				i -> g.fillRect((int)walls.getX(i), (int)walls.getY(i), walls.getWidth(i), walls.getHeight(i)));
+		g.translate(cameraX, cameraY);
+		PaintTime.lap(start);
+		DrawnCount.record(drawn);
+
+		hud.paint(g);
 	}
 
 	/**
-	 * Updates bullet locations and spawns new bullets.
+	 * Computes the player trajectory from the keys held down.
 	 */
-	public void updateBullets() {
-
-		// update bullet positions
-		for (Bullet bullet : bullets) {
-			bullet.update();
-		}
-
-		// check for out of boundary bullets
-		ArrayList<Bullet> remove = new ArrayList<Bullet>();
-		for (Bullet bullet : bullets) {
-			if (bullet.x < 0) {
-				remove.add(bullet);
-			}
-			else if (bullet.x > dimensions.x) {
-				remove.add(bullet);
-			}
-			else if (bullet.y < 0) {
-				remove.add(bullet);
-			}
-			else if (bullet.y > dimensions.y) {
-				remove.add(bullet);
-			}
-		}
-		bullets.removeAll(remove);
-
-		// spawn player bullets
-		if (spawnBullet) {
-			spawnBullet = false;
-			Point botToShootLocation = PlayerLocationFire();
-			Bullet bullet = new Bullet(playerLocation, botToShootLocation, bulletorigin.PLAYER);
-			if (!bullet.isIdle()) {
-				bullets.add(bullet);
-			}
-		}
-
-	}
-	public Point PlayerLocationFire() {
-
-		Point botToShoot = null;
-		double playerX, playerY, botX, botY;
-		playerX = this.getPlayerLocation().getX();
-		playerY = this.getPlayerLocation().getY();
-		double short_distance = 10000.0f;
-		for (Bot b : bots) {
-			botX = b.getX();
-			botY = b.getY();
-			double diff_x = (botY - playerY) * (botY - playerY);
-			double diff_y = (botX - playerX) * (botX - playerX);
-			double distance_to_check = Math.sqrt(diff_x + diff_y);
-			if (distance_to_check < short_distance) {
-				short_distance = distance_to_check;
-				botToShoot = b.getLocation();
-			}
-		}
-		return botToShoot;
-	}
-	/**
-	 * Updates the positions of objects in the scene based on their trajectories and the dimensions of the scene.
-	 */
-	public void updateLocations() {
-
-		// compute the player trajectory
+	private void updatePlayerTrajectory() {
 		int dx = 0;
 		int dy = 0;
 
@@ -259,191 +246,38 @@ public class GameEngine extends JPanel implements KeyListener {
 			dy += PlayerSpeed;
 		}
 
-		playerTrajectory = new Point(dx, dy);
-
-		// update player location
-		int playerX = playerLocation.x + playerTrajectory.x;
-		playerX = Math.max(0, playerX);
-		playerX = Math.min(dimensions.x, playerX);
-
-		int playerY = playerLocation.y + playerTrajectory.y;
-		playerY = Math.max(0, playerY);
-		playerY = Math.min(dimensions.y, playerY);
-
-		if(false == checkWallCollisions(playerX, playerY)) {
-			playerLocation = new Point(playerX, playerY);
-		}
-		
-		checkShotPlayer();
-		checkShotBots();
-
-		// update bot locations
-		for(Bot b : this.bots) {
-			int botX = b.getLocation().x + b.getTrajectory().x;
-			botX = Math.max(0, botX);
-			botX = Math.min(dimensions.x, botX);
-
-			int botY = b.getLocation().y + b.getTrajectory().y;
-			botY = Math.max(0, botY);
-			botY = Math.min(dimensions.y, botY);
-			
-			b.setLocation(new Point(botX, botY));
-		}
-	}
-
-	
-	/**
-	 * check for collisions between player and wall 
-	 */
-	private boolean checkWallCollisions(int x, int y) {
-		for(Wall w : GameEngine.getInstance().getWalls()) {
-		    if(x < w.getX() + w.getWidth() &&
-		    		x + playerSize > w.getX()&&
-    				y < w.getY() + w.getHeight() &&
-    				y + playerSize > w.getY()) {
-		    	return true;
-		    }
-    	}//collision
-		return false;
-	}
-	
-	/**
-	 * check for collisions between bullets and player 
-	 */
-	public boolean checkShotPlayer() {
-		//bot size
-		int size = Bot.Size;
-		// when in new spot, is hit by bullet
-		
-		for(Bullet b : GameEngine.getInstance().getBullets()) {
-			if(b.origin!=bulletorigin.PLAYER && playerLocation.x < b.getX() + 4 &&	//bullet size is 4 - I'll remove this hardcoded thing in a bit
-	    			playerLocation.x + size > b.getX()&&
-	    			playerLocation.y < b.getY() + 4 &&
-	    			playerLocation.y + size > b.getY()) {
-				int targetbulletindex = (GameEngine.getInstance().getBullets()).indexOf(b);
-				GameEngine.getInstance().removeBullet(targetbulletindex);
-	    		return true;
-			}
-		}
-		return false;
-	}
-	
-
-	/**
-	 * check for collisions between bullets and bots. 
-	 * notify bot if they have been shot by a player.
-	 */
-	public void checkShotBots() {
-		//bot size
-		int size = Bot.Size;
-		// when in new spot, is hit by bullet
-		
-		for(Bullet b :new ArrayList<>(bullets)) {
-			for(Bot bot : bots) {
-				if(b.origin==bulletorigin.PLAYER && 
-						bot.getX() < b.getX() + 4 &&	//bullet size is 4 - I'll remove this hardcoded thing in a bit
-						bot.getX() + size > b.getX()&&
-						bot.getY() < b.getY() + 4 &&
-						bot.getY() + size > b.getY()) {
-					int targetbulletindex = bullets.indexOf(b);
-					removeBullet(targetbulletindex);
-					bot.setShot(true);
-				}
-			}
-		}
-	}
-	
-
-	
-	/**
-	 * Sets the trajectory of the chaser object.
-	 *
-	 * Note: This is invoked via ABL physical acts
-	 */
-	public void setChaserTrajectory(Point trajectory) {
-		chaserTrajectory = trajectory;
-	}
-
-	/**
-	 * Fires a bullet from the chaser at the player.
-	 */
-	public void fireBullet(Point source, Point target) {
-		bulletSource = source;
-		bulletTarget = target;
-		chaserBullet = true;
-
-		Bullet bullet = new Bullet(bulletSource, bulletTarget, bulletorigin.FACTION1);
-		if (!bullet.isIdle()) {
-			bullets.add(bullet);
-		}
-	}
-
-	/**
-	 * Returns the location of the player.
-	 */
-	public Point getPlayerLocation() {
-		return playerLocation;
+		world.setPlayerTrajectory(new Point(dx, dy));
 	}
 
 	/**
-	 * Returns the trajectory of the player.
+	 * Returns the world shown by the game.
 	 */
-	public Point getPlayerTrajectory() {
-		return playerTrajectory;
+	public World getWorld() {
+		return world;
 	}
 
 	/**
-	 * Returns the location of the chaser.
+	 * Returns the camera choosing the part of the world shown.
 	 */
-	public Point getChaserLocation() {
-		return chaserLocation;
+	public Camera getCamera() {
+		return camera;
 	}
 
 	/**
-	 * Returns the trajectory of the chaser.
-	 */
-	public Point getChaserTrajectory() {
-		return chaserTrajectory;
-	}
-	
-	/**
-	 * Returns list of all bots 
+	 * Returns the performance overlay of the game.
 	 */
-	public ArrayList<Bot> getBots() {
-		return bots;
+	public Hud getHud() {
+		return hud;
 	}
 
-	/**
-	 * Returns list of all walls 
-	 */
-	public ArrayList<Wall> getWalls() {
-		return walls;
-	}
-	
-	/*
-	 * Returns list of all bullets
-	 */
-	public ArrayList<Bullet> getBullets() {
-		return bullets;
-	}
-	
-	public void removeBullet(int targetbullet) {
-		bullets.remove(targetbullet);
-	}
-	
-	public void addBots(int formPos) {
-		Bot b = new Bot();
-		b.setLocation(new Point(dimensions.x/2, dimensions.y/2));
-		b.setFormPos(formPos);
-		bots.add(b);
-	}
-	
 	/**
 	 * Initializes input handlers.
 	 */
 	public void initializeInputs() {
 		this.inputs.add(new Exit());
 		this.inputs.add(new Spawn());
+		this.inputs.add(new SpawnBatch());
+		this.inputs.add(new ToggleHud());
 	}
 
 
@@ -455,15 +289,15 @@ public class GameEngine extends JPanel implements KeyListener {
 	public void keyPressed(KeyEvent e) {
 
 		if (e.getKeyCode() == KeyEvent.VK_SPACE && keyPresses[KeyEvent.VK_SPACE] == false) {
-			spawnBullet = true;
+			world.firePlayerBullet();
 		}
 
 		if (e.getKeyCode() < keyPresses.length) {
 			keyPresses[e.getKeyCode()] = true;
 		}
-		
+
 		for(IInput handler : this.inputs) {
-			handler.process(gameEngine, e.getKeyCode());
+			handler.process(this, e.getKeyCode());
 		}
 	}
 
@@ -477,15 +311,4 @@ public class GameEngine extends JPanel implements KeyListener {
 	}
 
 	public void keyTyped(KeyEvent e) {}
-
-	public Point getDimensions() {
-		return dimensions;
-	}
-
-	/**
-	 * @param dimensions the dimensions to set
-	 */
-	public void setDimensions(Point dimensions) {
-		this.dimensions = dimensions;
-	}
 }
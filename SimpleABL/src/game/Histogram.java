@@ -0,0 +1,192 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative values, e.g. latencies in nanoseconds or entity counts.
+ *
+ * Values are counted in buckets: each power of two is split into SubBuckets linear
+ * buckets, so percentiles are accurate to 1/SubBuckets of the value while the histogram
+ * has a fixed size. Recording is lock-free and may be done from any thread.
+ */
+public class Histogram {
+
+	/** linear buckets per power of two */
+	static final int SubBuckets = 8;
+
+	/** log2 of SubBuckets */
+	private static final int SubBits = 3;
+
+	/** number of buckets, enough for any positive long */
+	static final int Buckets = (64 - SubBits)*SubBuckets;
+
+	private final String name;
+	private final AtomicLongArray counts = new AtomicLongArray(Buckets);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public Histogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of the histogram.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records a value, negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+
+		counts.incrementAndGet(bucket(value));
+		count.increment();
+		sum.add(value);
+
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value)) {
+			m = max.get();
+		}
+	}
+
+	/**
+	 * Records the time since start (from System.nanoTime()) and returns the current time,
+	 * so consecutive phases can be timed with one clock read each.
+	 */
+	public long lap(long start) {
+		long now = System.nanoTime();
+		record(now - start);
+		return now;
+	}
+
+	/**
+	 * Returns the bucket of a value.
+	 */
+	static int bucket(long value) {
+		if (value < SubBuckets) {
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SubBits)) & (SubBuckets - 1);
+		return (exponent - SubBits + 1)*SubBuckets + sub;
+	}
+
+	/**
+	 * Returns the largest value counted in a bucket.
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < SubBuckets) {
+			return bucket;
+		}
+		int exponent = bucket/SubBuckets + SubBits - 1;
+		long width = 1L << (exponent - SubBits);
+		long lower = (long)(SubBuckets + bucket%SubBuckets) << (exponent - SubBits);
+		return lower + width - 1;
+	}
+
+	/**
+	 * Returns a copy of the current counts.
+	 */
+	public Snapshot snapshot() {
+		long[] copy = new long[Buckets];
+		long total = 0;
+		for (int i = 0; i < Buckets; i++) {
+			copy[i] = counts.get(i);
+			total += copy[i];
+		}
+		return new Snapshot(name, copy, total, sum.sum(), max.get());
+	}
+
+	/**
+	 * Counts of a histogram at one point in time.
+	 */
+	public static class Snapshot {
+		private final String name;
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(String name, long[] counts, long count, long sum, long max) {
+			this.name = name;
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * Returns the values recorded after the earlier snapshot of the same histogram.
+		 *
+		 * Note: the maximum of the difference is the upper bound of its highest bucket.
+		 */
+		public Snapshot since(Snapshot earlier) {
+			if (earlier == null) {
+				return this;
+			}
+
+			long[] diff = new long[Buckets];
+			long total = 0;
+			long high = 0;
+			for (int i = 0; i < Buckets; i++) {
+				diff[i] = counts[i] - earlier.counts[i];
+				total += diff[i];
+				if (diff[i] > 0) {
+					high = Math.min(max, upperBound(i));
+				}
+			}
+			return new Snapshot(name, diff, total, sum - earlier.sum, high);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double)sum/count;
+		}
+
+		/**
+		 * Returns the value below which the given fraction (0 to 1) of the values lie,
+		 * rounded up to the bucket bound.
+		 */
+		public long getPercentile(double fraction) {
+			if (count == 0) {
+				return 0;
+			}
+
+			long rank = (long)Math.ceil(fraction*count);
+			long seen = 0;
+			for (int i = 0; i < Buckets; i++) {
+				seen += counts[i];
+				if (seen >= Math.max(1, rank)) {
+					return Math.min(max, upperBound(i));
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import abl.runtime.BehavingEntity;
+
+/**
+ * Performance overlay of the game: update and frame rates, decision cycles of the agent,
+ * the time of the update phases, entity counts and garbage collection.
+ *
+ * The numbers are the averages of the last second, taken from the Metrics histograms
+ * and recomputed once a second, so drawing the overlay is cheap.
+ */
+public class Hud {
+
+	/** time between updates of the numbers (in nanoseconds) */
+	private static final long Interval = 1000000000L;
+
+	/** timers shown for the last second */
+	private static final String[] Phases = {
+		"tick",
+		"tick.updateLocations",
+		"tick.updateLocations.flowField",
+		"tick.updateLocations.checkShotPlayer",
+		"tick.updateLocations.checkShotBots",
+		"tick.updateLocations.bots",
+		"tick.updateLocations.botGrid",
+		"tick.updateLocations.nextMoveRound",
+		"tick.updateBullets",
+		"paint",
+	};
+
+	private static final Font HudFont = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+	private static final Color Background = new Color(0, 0, 0, 160);
+
+	private final World world;
+
+	/** the agent whose working memory is counted, if any */
+	private volatile BehavingEntity agent;
+
+	private volatile boolean visible = false;
+
+	/** state at the previous update */
+	private long lastUpdate = 0;
+	private long lastTicks = 0;
+	private long lastFrames = 0;
+	private long lastGcCount = 0;
+	private long lastGcTime = 0;
+	private Histogram.Snapshot lastCycles;
+	private Histogram.Snapshot lastDrawn;
+	private final Histogram.Snapshot[] lastPhases = new Histogram.Snapshot[Phases.length];
+
+	/** frames drawn */
+	private long frames = 0;
+
+	/** lines to draw */
+	private List<String> lines = new ArrayList<String>();
+
+	public Hud(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Sets the agent whose working memory elements are counted.
+	 */
+	public void setAgent(BehavingEntity agent) {
+		this.agent = agent;
+	}
+
+	public boolean isVisible() {
+		return visible;
+	}
+
+	public void setVisible(boolean visible) {
+		this.visible = visible;
+	}
+
+	/**
+	 * Counts a frame and draws the overlay if it is visible.
+	 *
+	 * Note: call this from paint() after drawing the scene.
+	 */
+	public void paint(Graphics g) {
+		frames++;
+		if (!visible) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		if (now - lastUpdate >= Interval) {
+			update(now);
+		}
+
+		g.setFont(HudFont);
+		FontMetrics metrics = g.getFontMetrics();
+		int width = 0;
+		for (String line : lines) {
+			width = Math.max(width, metrics.stringWidth(line));
+		}
+		int lineHeight = metrics.getHeight();
+
+		g.setColor(Background);
+		g.fillRect(4, 4, width + 8, lines.size()*lineHeight + 8);
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < lines.size(); i++) {
+			g.drawString(lines.get(i), 8, 8 + metrics.getAscent() + i*lineHeight);
+		}
+	}
+
+	/**
+	 * Recomputes the numbers from the changes since the previous update.
+	 */
+	private void update(long now) {
+		double seconds = lastUpdate == 0 ? 1 : (now - lastUpdate)/1e9;
+		List<String> lines = new ArrayList<String>();
+
+		long ticks = world.getTicks();
+		Histogram.Snapshot cycles = Metrics.timer("abl.decisionCycle").snapshot();
+		lines.add(String.format("updates/s %6.1f   frames/s %6.1f   cycles/s %6.1f",
+				(ticks - lastTicks)/seconds, (frames - lastFrames)/seconds,
+				cycles.since(lastCycles).getCount()/seconds));
+		lastTicks = ticks;
+		lastFrames = frames;
+		lastCycles = cycles;
+
+		BulletStore bullets = world.getBullets();
+		lines.add(String.format("bots %d (%d KB off heap)   bullets %d (%d KB off heap)   wmes %s",
+				world.getBots().size(), world.getBotStore().getBytes()/1024,
+				bullets.size(), bullets.getBytes()/1024, countWmes()));
+
+		Histogram.Snapshot drawn = Metrics.counts("paint.drawn").snapshot();
+		lines.add(String.format("drawn %.0f entities per frame", drawn.since(lastDrawn).getMean()));
+		lastDrawn = drawn;
+
+		long gcCount = 0;
+		long gcTime = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcCount += Math.max(0, gc.getCollectionCount());
+			gcTime += Math.max(0, gc.getCollectionTime());
+		}
+		lines.add(String.format("gc %d collections, %d ms in the last second",
+				gcCount - lastGcCount, gcTime - lastGcTime));
+		lastGcCount = gcCount;
+		lastGcTime = gcTime;
+
+		lines.add(String.format("%-36s %8s %8s", "phase (us)", "mean", "max"));
+		for (int i = 0; i < Phases.length; i++) {
+			Histogram.Snapshot phase = Metrics.timer(Phases[i]).snapshot();
+			Histogram.Snapshot last = phase.since(lastPhases[i]);
+			lines.add(String.format("%-36s %8.1f %8.1f", Phases[i], last.getMean()/1000, last.getMax()/1000.0));
+			lastPhases[i] = phase;
+		}
+
+		this.lines = lines;
+		lastUpdate = now;
+	}
+
+	/**
+	 * Returns the number of elements in the working memory of the agent, or - without one.
+	 */
+	private String countWmes() {
+		BehavingEntity agent = this.agent;
+		if (agent == null || agent.getWorkingMemory() == null) {
+			return "-";
+		}
+
+		long count = 0;
+		for (Map.Entry<String, Integer> usage : agent.getWorkingMemory().getMemoryUsage().entrySet()) {
+			count += usage.getValue();
+		}
+		return Long.toString(count);
+	}
+}
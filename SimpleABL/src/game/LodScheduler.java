@@ -0,0 +1,78 @@
+package game;
+
+import java.awt.Point;
+
+/**
+ * Level of detail scheduling for the decisions of the bots.
+ *
+ * Each bot gets a think interval from its distance to the player, measured in bands
+ * of the sight radius: bots within sight decide every round, each further band
+ * doubles the interval up to MaxInterval. A bot is due in the rounds that are a
+ * multiple of its interval, staggered by id so distant bots spread their decisions
+ * evenly over the rounds. In the rounds a bot is not due, the world reports it as
+ * already handled, so the movement, firing and trust behaviors of the agent skip it
+ * and it keeps its last trajectory.
+ *
+ * Whether a bot is due is computed when it is asked for, from the round number and
+ * the current locations, so starting a round costs nothing however many bots there are.
+ */
+public class LodScheduler {
+
+	/** default width of a distance band (in pixels), the sight radius of the agents */
+	public static final int Band = 150;
+
+	/** largest number of rounds between decisions */
+	public static final int MaxInterval = 8;
+
+	/** width of a distance band, 0 disables the scheduling */
+	private volatile int band = Band;
+
+	/**
+	 * Is the bot with the given id and location due for a decision in the given round?
+	 */
+	public boolean isDue(int id, int x, int y, int round, Point player) {
+		int interval = getThinkInterval(x, y, player);
+		return interval <= 1 || Math.floorMod(round + id, interval) == 0;
+	}
+
+	/**
+	 * Is the bot with the given id and location, which last decided in lastRound, due
+	 * for a decision in the given round? A bot that let its due round pass without a
+	 * decision, e.g. because the decision budget deferred it, stays due until it decides.
+	 */
+	public boolean isDue(int id, int x, int y, int round, int lastRound, Point player) {
+		int interval = getThinkInterval(x, y, player);
+		return interval <= 1 || Math.floorMod(round + id, interval) == 0 || round - lastRound > interval;
+	}
+
+	/**
+	 * Returns the number of rounds between decisions for a bot at the given location.
+	 */
+	public int getThinkInterval(int x, int y, Point player) {
+		int band = this.band;
+		if (band <= 0) {
+			return 1;
+		}
+
+		double distance = Math.hypot(x - player.x, y - player.y);
+		int bands = (int)(distance/band);
+		if (bands >= 31) {
+			return MaxInterval;
+		}
+		return Math.min(MaxInterval, 1 << bands);
+	}
+
+	/**
+	 * Returns the width of a distance band.
+	 */
+	public int getBand() {
+		return band;
+	}
+
+	/**
+	 * Sets the width of a distance band, 0 makes every bot decide every round.
+	 */
+	public void setBand(int band) {
+		this.band = band;
+	}
+}
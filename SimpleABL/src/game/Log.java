@@ -0,0 +1,258 @@
+package game;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous logging for diagnostics from actions, sensors, mental acts and the engine.
+ *
+ * Logging a message neither formats it nor blocks: the format string and arguments are
+ * placed in a lock-free ring buffer and a background thread formats and prints them.
+ * If the ring is full the message is dropped and counted.
+ *
+ * Messages are rate limited by their format string: at most RateLimit messages with the
+ * same format are printed per second, the rest are counted and the number suppressed
+ * is appended to the next one printed. Occurrences of every format are counted,
+ * including suppressed ones.
+ *
+ * Usage: Log.warn("Bot %d is stuck", id);
+ */
+public final class Log {
+
+	/** message levels */
+	public static final int Debug = 0;
+	public static final int Info = 1;
+	public static final int Warn = 2;
+	public static final int Error = 3;
+
+	private static final String[] LevelNames = { "DEBUG", "INFO", "WARN", "ERROR" };
+
+	/** number of messages the ring holds, a power of two */
+	public static final int Capacity = 1 << 12;
+
+	/** messages printed per format and second */
+	public static final int RateLimit = 10;
+
+	/** messages below this level are ignored */
+	private static volatile int level = Info;
+
+	/** where messages are printed */
+	private static volatile PrintStream out = System.out;
+
+	/** the ring: producers claim slots by advancing tail, the writer frees them by advancing head */
+	private static final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<Entry>(Capacity);
+	private static final AtomicLong tail = new AtomicLong();
+	private static volatile long head = 0;
+
+	/** rate limits and counters by format */
+	private static final ConcurrentHashMap<String, Limit> limits = new ConcurrentHashMap<String, Limit>();
+
+	/** messages dropped because the ring was full */
+	private static final AtomicLong dropped = new AtomicLong();
+
+	/** the background writer */
+	private static final Thread writer;
+
+	static {
+		writer = new Thread("log-writer") {
+			public void run() {
+				while (true) {
+					if (!drain()) {
+						LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+					}
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				flush();
+			}
+		});
+	}
+
+	/**
+	 * A message waiting to be printed.
+	 */
+	private static final class Entry {
+		final int level;
+		final long time;
+		final String thread;
+		final String format;
+		final Object[] args;
+		final int suppressed;
+
+		Entry(int level, String format, Object[] args, int suppressed) {
+			this.level = level;
+			this.time = System.currentTimeMillis();
+			this.thread = Thread.currentThread().getName();
+			this.format = format;
+			this.args = args;
+			this.suppressed = suppressed;
+		}
+	}
+
+	/**
+	 * Rate limit and counter of a format.
+	 */
+	private static final class Limit {
+		volatile long window;
+		final AtomicInteger inWindow = new AtomicInteger();
+		final AtomicInteger suppressed = new AtomicInteger();
+		final AtomicLong count = new AtomicLong();
+	}
+
+	private Log() {
+	}
+
+	public static void debug(String format, Object... args) {
+		log(Debug, format, args);
+	}
+
+	public static void info(String format, Object... args) {
+		log(Info, format, args);
+	}
+
+	public static void warn(String format, Object... args) {
+		log(Warn, format, args);
+	}
+
+	public static void error(String format, Object... args) {
+		log(Error, format, args);
+	}
+
+	/**
+	 * Counts the message and queues it for printing unless it is rate limited or below the level.
+	 */
+	public static void log(int level, String format, Object... args) {
+		Limit limit = limits.get(format);
+		if (limit == null) {
+			limit = new Limit();
+			Limit existing = limits.putIfAbsent(format, limit);
+			if (existing != null) {
+				limit = existing;
+			}
+		}
+		limit.count.incrementAndGet();
+
+		if (level < Log.level) {
+			return;
+		}
+
+		long window = System.nanoTime()/TimeUnit.SECONDS.toNanos(1);
+		if (limit.window != window) {
+			limit.window = window;
+			limit.inWindow.set(0);
+		}
+		if (limit.inWindow.incrementAndGet() > RateLimit) {
+			limit.suppressed.incrementAndGet();
+			return;
+		}
+
+		Entry entry = new Entry(level, format, args, limit.suppressed.getAndSet(0));
+		while (true) {
+			long t = tail.get();
+			if (t - head >= Capacity) {
+				dropped.incrementAndGet();
+				return;
+			}
+			if (tail.compareAndSet(t, t + 1)) {
+				slots.set((int)(t & (Capacity - 1)), entry);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Prints the queued messages, returns false if there were none.
+	 */
+	private static synchronized boolean drain() {
+		PrintStream out = Log.out;
+		boolean printed = false;
+		while (true) {
+			int slot = (int)(head & (Capacity - 1));
+			Entry entry = slots.get(slot);
+			if (entry == null) {
+				break;
+			}// empty, or claimed but not yet published
+			slots.set(slot, null);
+			head++;
+
+			String message;
+			try {
+				message = String.format(entry.format, entry.args);
+			}
+			catch (RuntimeException e) {
+				message = entry.format;
+			}
+			StringBuilder line = new StringBuilder();
+			line.append(entry.time).append(' ').append(LevelNames[entry.level]);
+			line.append(" [").append(entry.thread).append("] ").append(message);
+			if (entry.suppressed > 0) {
+				line.append(" (").append(entry.suppressed).append(" similar messages suppressed)");
+			}
+			out.println(line);
+			printed = true;
+		}
+		if (printed) {
+			out.flush();
+		}
+		return printed;
+	}
+
+	/**
+	 * Prints all queued messages on the calling thread.
+	 */
+	public static void flush() {
+		drain();
+	}
+
+	/**
+	 * Sets the lowest level of printed messages, lower ones are only counted.
+	 */
+	public static void setLevel(int level) {
+		Log.level = level;
+	}
+
+	/**
+	 * Sets where messages are printed.
+	 */
+	public static void setOutput(PrintStream out) {
+		Log.out = out;
+	}
+
+	/**
+	 * Returns how often a message with the given format was logged.
+	 */
+	public static long getCount(String format) {
+		Limit limit = limits.get(format);
+		return limit != null ? limit.count.get() : 0;
+	}
+
+	/**
+	 * Returns how often each format was logged.
+	 */
+	public static Map<String, Long> getCounts() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, Limit> entry : limits.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().count.get());
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of messages dropped because the ring was full.
+	 */
+	public static long getDropped() {
+		return dropped.get();
+	}
+}
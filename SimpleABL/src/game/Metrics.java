@@ -0,0 +1,234 @@
+package game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import abl.runtime.BehavingEntity;
+import abl.runtime.BehavingListener;
+import abl.runtime.Step;
+
+/**
+ * Latency histograms of the phases of an update and of the agent loop, and
+ * histograms of entity counts, for finding where the time of an update goes.
+ *
+ * Timers are recorded in nanoseconds and counts per update, summed over all worlds
+ * in the JVM. The report lists count, mean, percentiles and maximum of each histogram,
+ * both since startup and, for the periodic dump, since the previous dump. It is served
+ * on http://localhost:port/metrics by serve().
+ *
+ * Usage: private static final Histogram FooTime = Metrics.timer("foo");
+ *        long start = System.nanoTime(); foo(); FooTime.lap(start);
+ */
+public final class Metrics {
+
+	/** path of the report on the http server */
+	public static final String Path = "/metrics";
+
+	private static final double[] Percentiles = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String[] PercentileNames = { "p50", "p90", "p99", "p99.9" };
+
+	/** histograms by name, sorted for the report */
+	private static final Map<String, Histogram> timers = new ConcurrentSkipListMap<String, Histogram>();
+	private static final Map<String, Histogram> counts = new ConcurrentSkipListMap<String, Histogram>();
+
+	/** agents with a decision cycle timer */
+	private static final Set<BehavingEntity> instrumented =
+			Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<BehavingEntity, Boolean>()));
+
+	private static final Histogram DecisionCycleTime = timer("abl.decisionCycle");
+
+	/** the http server, if started */
+	private static HttpServer server;
+
+	private Metrics() {
+	}
+
+	/**
+	 * Returns the latency histogram with the given name, creating it on first use.
+	 */
+	public static Histogram timer(String name) {
+		return get(timers, name);
+	}
+
+	/**
+	 * Returns the entity count histogram with the given name, creating it on first use.
+	 */
+	public static Histogram counts(String name) {
+		return get(counts, name);
+	}
+
+	private static Histogram get(Map<String, Histogram> histograms, String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			synchronized (histograms) {
+				histogram = histograms.get(name);
+				if (histogram == null) {
+					histogram = new Histogram(name);
+					histograms.put(name, histogram);
+				}
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Times the decision cycles of the agent, the time from the start of one cycle to
+	 * the start of the next. A cycle evaluates preconditions, runs the continuous
+	 * sensors, success tests and context conditions and executes the chosen steps.
+	 */
+	public static void instrument(BehavingEntity agent) {
+		if (!instrumented.add(agent)) {
+			return;
+		}
+
+		agent.addBehavingListener(new BehavingListener() {
+			private static final long serialVersionUID = 1L;
+
+			private long cycleStart = 0;
+
+			public void onBehave(Map<String, Set<Step>> atomicSteps, Set<Step> executing) {
+				if (cycleStart != 0) {
+					cycleStart = DecisionCycleTime.lap(cycleStart);
+				}
+				else {
+					cycleStart = System.nanoTime();
+				}
+			}
+
+			public void onLoad(BehavingEntity.BehaviorLibrary individual, BehavingEntity.BehaviorLibrary joint) {
+			}
+		});
+	}
+
+	/**
+	 * Returns snapshots of all histograms, timers first.
+	 */
+	public static List<Histogram.Snapshot> snapshot() {
+		List<Histogram.Snapshot> snapshots = new ArrayList<Histogram.Snapshot>();
+		for (Histogram h : timers.values()) {
+			snapshots.add(h.snapshot());
+		}
+		for (Histogram h : counts.values()) {
+			snapshots.add(h.snapshot());
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Returns the report of all histograms since startup.
+	 */
+	public static String report() {
+		return report(snapshot(), null);
+	}
+
+	/**
+	 * Returns the report of the snapshots, or of their difference to the previous ones if given.
+	 */
+	private static String report(List<Histogram.Snapshot> snapshots, Map<String, Histogram.Snapshot> previous) {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%-40s %10s %10s", "timer (us)", "count", "mean"));
+		for (String p : PercentileNames) {
+			text.append(String.format(" %9s", p));
+		}
+		text.append(String.format(" %10s%n", "max"));
+
+		boolean countsStarted = false;
+		for (Histogram.Snapshot s : snapshots) {
+			boolean timer = timers.containsKey(s.getName());
+			if (!timer && !countsStarted) {
+				countsStarted = true;
+				text.append(String.format("%-40s%n", "count"));
+			}
+			if (previous != null) {
+				s = s.since(previous.get(s.getName()));
+			}
+
+			double scale = timer ? 1000.0 : 1.0;
+			text.append(String.format("%-40s %10d %10.1f", s.getName(), s.getCount(), s.getMean()/scale));
+			for (double p : Percentiles) {
+				text.append(String.format(" %9.1f", s.getPercentile(p)/scale));
+			}
+			text.append(String.format(" %10.1f%n", s.getMax()/scale));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Serves the report on http://localhost:port/metrics, returns the bound port.
+	 * Port 0 picks a free port.
+	 */
+	public static synchronized int serve(int port) throws IOException {
+		if (server != null) {
+			return server.getAddress().getPort();
+		}
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(Path, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = report().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		});
+		server.start();
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the http server.
+	 */
+	public static synchronized void stopServing() {
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+	}
+
+	/**
+	 * Prints the report of the last period to out every period on a daemon thread.
+	 */
+	public static void dump(final long periodMillis, final PrintStream out) {
+		Thread dumper = new Thread("metrics-dump") {
+			public void run() {
+				Map<String, Histogram.Snapshot> previous = new HashMap<String, Histogram.Snapshot>();
+				while (true) {
+					try {
+						Thread.sleep(periodMillis);
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+
+					List<Histogram.Snapshot> snapshots = snapshot();
+					out.printf("metrics of the last %d ms at %d%n", periodMillis, System.currentTimeMillis());
+					out.print(report(snapshots, previous));
+					out.flush();
+					for (Histogram.Snapshot s : snapshots) {
+						previous.put(s.getName(), s);
+					}
+				}
+			}
+		};
+		dumper.setDaemon(true);
+		dumper.start();
+	}
+}
@@ -0,0 +1,8 @@
+package game;
+
+/**
+ * Moves the player of a world that is not controlled from the keyboard.
+ */
+public interface PlayerController {
+	public void control(World world);
+}
@@ -0,0 +1,318 @@
+package game;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import wm.WME;
+import wm.WorkingMemory;
+import abl.runtime.BehavingEntity;
+import abl.runtime.BehavingListener;
+import abl.runtime.Step;
+import abl.runtime.__BehaviorDesc;
+
+/**
+ * Counts the precondition evaluations of every behavior of the agents: evaluations,
+ * successes, time and the WMEs the precondition scanned, for finding the behaviors
+ * that are worth reordering or rewriting.
+ *
+ * The runtime calls the generated precondition methods (e.g. Advanced_Preconditions
+ * .precondition0) through the precondition of each behavior in the behavior library.
+ * An instrumented agent has these replaced with precondition() below, which counts and
+ * calls the generated one. WMEs scanned are the sizes of the WME lists the precondition
+ * looked up, the most it can iterate over.
+ *
+ * The wrapper also emits the abl.Precondition flight recorder event of AgentEvents.
+ *
+ * Instrumenting is off by default, enable it before agents are attached to a world.
+ * Agents attached while a flight recording enables the precondition event are
+ * instrumented as well. Counters are kept by agent class and behavior, so runs of
+ * several agents of the same class are summed.
+ */
+public final class PreconditionStats {
+
+	/** counters of a behavior */
+	public static class Counters {
+		final String behavior;
+		final AtomicLong evaluations = new AtomicLong();
+		final AtomicLong successes = new AtomicLong();
+		final AtomicLong nanos = new AtomicLong();
+		final AtomicLong wmes = new AtomicLong();
+
+		Counters(String behavior) {
+			this.behavior = behavior;
+		}
+
+		public String getBehavior() {
+			return behavior;
+		}
+
+		public long getEvaluations() {
+			return evaluations.get();
+		}
+
+		public long getSuccesses() {
+			return successes.get();
+		}
+
+		public long getNanos() {
+			return nanos.get();
+		}
+
+		public long getWmesScanned() {
+			return wmes.get();
+		}
+	}
+
+	/** the generated precondition methods and counters of an agent, by behavior id */
+	private static class Profile {
+		final Map<Integer, Method> preconditions = new HashMap<Integer, Method>();
+		final Map<Integer, Counters> counters = new HashMap<Integer, Counters>();
+		final CountingWorkingMemory memory;
+
+		Profile(CountingWorkingMemory memory) {
+			this.memory = memory;
+		}
+	}
+
+	/**
+	 * Working memory that counts the WMEs returned by lookups on one thread.
+	 */
+	private static class CountingWorkingMemory extends WorkingMemory {
+		private static final long serialVersionUID = 1L;
+
+		/** thread whose lookups are counted */
+		Thread counting;
+
+		/** WMEs returned to it */
+		long scanned;
+
+		CountingWorkingMemory(String name) {
+			super(name);
+		}
+
+		public synchronized <T extends WME> List<T> lookupWME(String name) {
+			List<T> wmes = super.lookupWME(name);
+			if (Thread.currentThread() == counting) {
+				scanned += wmes.size();
+			}
+			return wmes;
+		}
+	}
+
+	/** should attached agents be instrumented? */
+	private static volatile boolean enabled = Boolean.getBoolean("abl.preconditionStats");
+
+	/** profiles of the instrumented agents */
+	private static final Map<BehavingEntity, Profile> profiles =
+			Collections.synchronizedMap(new WeakHashMap<BehavingEntity, Profile>());
+
+	/** counters by agent class and behavior name */
+	private static final Map<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+	/** runtime fields replaced by the instrumentation */
+	private static final Field PreconditionField = field(__BehaviorDesc.class, "precondition");
+	private static final Field MemoryField = field(BehavingEntity.class, "workingMemory");
+
+	/** the method the runtime calls instead of the generated preconditions */
+	private static final Method Precondition;
+
+	static {
+		try {
+			Precondition = PreconditionStats.class.getMethod("precondition",
+					int.class, Object[].class, Map.class, BehavingEntity.class);
+		}
+		catch (NoSuchMethodException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private PreconditionStats() {
+	}
+
+	private static Field field(Class<?> type, String name) {
+		try {
+			Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Enables instrumenting the agents attached to a world from now on.
+	 */
+	public static void setEnabled(boolean enabled) {
+		PreconditionStats.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Counts the precondition evaluations of the agent once it starts behaving, if enabled
+	 * or if the precondition flight recorder event is.
+	 */
+	public static void instrument(final BehavingEntity agent) {
+		if (!enabled && !AgentEvents.isPreconditionEnabled()) {
+			return;
+		}
+		if (PreconditionField == null || MemoryField == null || profiles.containsKey(agent)) {
+			return;
+		}
+
+		final String agentName = agent.getClass().getSimpleName();
+		final CountingWorkingMemory memory = new CountingWorkingMemory(agentName + "Memory");
+		profiles.put(agent, new Profile(memory));
+
+		agent.addBehavingListener(new BehavingListener() {
+			private static final long serialVersionUID = 1L;
+
+			public void onBehave(Map<String, Set<Step>> executingSteps, Set<Step> leafSteps) {
+			}
+
+			public void onLoad(BehavingEntity.BehaviorLibrary individual, BehavingEntity.BehaviorLibrary joint) {
+				Profile profile = profiles.get(agent);
+				try {
+					memory.addWorkingMemory((WorkingMemory)MemoryField.get(agent));
+					MemoryField.set(agent, memory);
+					replace(individual, agentName, profile);
+					replace(joint, agentName, profile);
+				}
+				catch (IllegalAccessException e) {
+					Log.warn("Can't count the preconditions of %s: %s", agentName, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Replaces the preconditions of the library with the counting one.
+	 */
+	private static void replace(BehavingEntity.BehaviorLibrary library, String agentName, Profile profile)
+			throws IllegalAccessException {
+		if (library == null) {
+			return;
+		}
+
+		Map<Integer, String> names = new HashMap<Integer, String>();
+		AgentEvents.addBehaviorNames(library, names);
+		for (List<__BehaviorDesc> descs : library.getBehaviorMap().values()) {
+			for (__BehaviorDesc desc : descs) {
+				Method precondition = (Method)PreconditionField.get(desc);
+				if (precondition == null || precondition.equals(Precondition)) {
+					continue;
+				}
+
+				String behavior = names.get(desc.behaviorID);
+				String name = agentName + "." + (behavior != null ? behavior : desc.signature);
+				Counters c = counters.get(name);
+				if (c == null) {
+					counters.putIfAbsent(name, new Counters(name));
+					c = counters.get(name);
+				}
+
+				synchronized (profile) {
+					profile.preconditions.put(desc.behaviorID, precondition);
+					profile.counters.put(desc.behaviorID, c);
+				}
+				PreconditionField.set(desc, Precondition);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the generated precondition of the behavior, counts it and records its event.
+	 *
+	 * Note: This is invoked by the runtime in place of the generated preconditions.
+	 */
+	public static boolean precondition(int behaviorID, Object[] args, Map<?, ?> variableTable, BehavingEntity entity)
+			throws Throwable {
+		Profile profile = profiles.get(entity);
+		Method precondition;
+		Counters c;
+		synchronized (profile) {
+			precondition = profile.preconditions.get(behaviorID);
+			c = profile.counters.get(behaviorID);
+		}
+
+		CountingWorkingMemory memory = profile.memory;
+		long scanned;
+		synchronized (memory) {
+			memory.counting = Thread.currentThread();
+			scanned = memory.scanned;
+		}
+
+		Object event = AgentEvents.beginPrecondition();
+		long start = System.nanoTime();
+		boolean result = false;
+		try {
+			result = (Boolean)precondition.invoke(null, behaviorID, args, variableTable, entity);
+		}
+		catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+		finally {
+			long time = System.nanoTime() - start;
+			synchronized (memory) {
+				scanned = memory.scanned - scanned;
+				memory.counting = null;
+			}
+			c.evaluations.incrementAndGet();
+			c.nanos.addAndGet(time);
+			c.wmes.addAndGet(scanned);
+			AgentEvents.endPrecondition(event, c.behavior, result);
+		}
+
+		if (result) {
+			c.successes.incrementAndGet();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the counters of all behaviors, most expensive first.
+	 */
+	public static List<Counters> getCounters() {
+		List<Counters> list = new ArrayList<Counters>(counters.values());
+		Collections.sort(list, new Comparator<Counters>() {
+			public int compare(Counters a, Counters b) {
+				return Long.compare(b.getNanos(), a.getNanos());
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * Returns a report of the behaviors ranked by the total time of their preconditions.
+	 */
+	public static String report() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%-36s %10s %8s %10s %10s %12s %10s%n",
+				"behavior", "evals", "success", "total ms", "ns/eval", "wmes", "wmes/eval"));
+		for (Counters c : getCounters()) {
+			long evaluations = c.getEvaluations();
+			if (evaluations == 0) {
+				continue;
+			}
+			text.append(String.format("%-36s %10d %7.1f%% %10.1f %10d %12d %10.1f%n",
+					c.getBehavior(), evaluations, 100.0*c.getSuccesses()/evaluations,
+					c.getNanos()/1e6, c.getNanos()/evaluations, c.getWmesScanned(),
+					(double)c.getWmesScanned()/evaluations));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,200 @@
+package game;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import abl.runtime.BehavingEntity;
+import abl.runtime.BehavingListener;
+import abl.runtime.Step;
+
+/**
+ * Runs a world and the agent acting in it without a window.
+ *
+ * Any number of simulations can share one executor, each one occupies two of its
+ * threads while it runs: one for the decision cycle of the agent and one for the
+ * world updates. The updates start once the agent has run its first decision cycle, so
+ * a fast simulation doesn't finish before the agent has loaded its behaviors.
+ */
+public class Simulation {
+
+	/** time between world updates (in milliseconds) */
+	public static final long TickPeriod = 50;
+
+	/** longest wait for the first decision cycle of the agent (in milliseconds) */
+	public static final long AgentStartTimeout = 60000;
+
+	/** the simulated world */
+	private final World world;
+
+	/** the agent acting in the world */
+	private final BehavingEntity agent;
+
+	/** time between world updates (in milliseconds), 0 updates as fast as possible */
+	private final long tickPeriod;
+
+	/** is the simulation running? */
+	private volatile boolean running = false;
+
+	/** opened by the first decision cycle of the agent */
+	private final CountDownLatch behaving = new CountDownLatch(1);
+
+	/** moves the player before each update, if set */
+	private PlayerController playerController;
+
+	/**
+	 * Creates a simulation of the agent acting in the world at the default update rate.
+	 */
+	public Simulation(World world, BehavingEntity agent) {
+		this(world, agent, TickPeriod);
+	}
+
+	/**
+	 * Creates a simulation of the agent acting in the world.
+	 */
+	public Simulation(World world, BehavingEntity agent, long tickPeriod) {
+		this.world = world;
+		this.agent = agent;
+		this.tickPeriod = tickPeriod;
+		world.attach(agent);
+
+		agent.addBehavingListener(new BehavingListener() {
+			private static final long serialVersionUID = 1L;
+
+			public void onBehave(Map<String, Set<Step>> executingSteps, Set<Step> leafSteps) {
+				behaving.countDown();
+			}
+
+			public void onLoad(BehavingEntity.BehaviorLibrary individual, BehavingEntity.BehaviorLibrary joint) {
+			}
+		});
+	}
+
+	/**
+	 * Starts the agent and the world updates on the executor.
+	 */
+	public void start(Executor executor) {
+		running = true;
+		startAgent(executor);
+		executor.execute(new Runnable() {
+			public void run() {
+				if (!awaitAgent()) {
+					return;
+				}
+				while (running) {
+					if (!step()) {
+						return;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Starts the agent on the executor and updates the world on the calling thread
+	 * until the given number of updates have been made, then stops the agent.
+	 */
+	public void run(Executor executor, long ticks) {
+		running = true;
+		startAgent(executor);
+		if (!awaitAgent()) {
+			stop();
+			return;
+		}
+
+		long end = world.getTicks() + ticks;
+		while (running && world.getTicks() < end) {
+			if (!step()) {
+				break;
+			}
+		}
+		stop();
+	}
+
+	/**
+	 * Starts the decision cycle of the agent on the executor.
+	 */
+	private void startAgent(Executor executor) {
+		executor.execute(new Runnable() {
+			public void run() {
+				agent.startBehaving();
+			}
+		});
+	}
+
+	/**
+	 * Waits for the first decision cycle of the agent, returns false if interrupted.
+	 * Gives up waiting after the timeout, the updates then start without the agent.
+	 */
+	private boolean awaitAgent() {
+		try {
+			if (!behaving.await(AgentStartTimeout, TimeUnit.MILLISECONDS)) {
+				Log.warn("%s didn't start behaving within %d ms, updating the world without it",
+						agent.getClass().getSimpleName(), AgentStartTimeout);
+			}
+			return true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Updates the world once and waits for the next update, returns false if interrupted.
+	 */
+	private boolean step() {
+		if (playerController != null) {
+			playerController.control(world);
+		}
+		world.tick();
+
+		if (tickPeriod > 0) {
+			try {
+				Thread.sleep(tickPeriod);
+			}
+			catch (InterruptedException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the world updates and the agent, which releases both threads.
+	 */
+	public void stop() {
+		running = false;
+		agent.stopBehaving();
+	}
+
+	/**
+	 * Sets the controller that moves the player before each update.
+	 */
+	public void setPlayerController(PlayerController playerController) {
+		this.playerController = playerController;
+	}
+
+	/**
+	 * Is the simulation running?
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Returns the simulated world.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Returns the agent acting in the world.
+	 */
+	public BehavingEntity getAgent() {
+		return agent;
+	}
+}
@@ -0,0 +1,177 @@
+package game;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid of points hashed into a table sized by the number of points, used for
+ * box queries.
+ *
+ * Memory depends on the number of points rather than the area they are spread over,
+ * so a huge sparse world costs no more than a small crowded one. The points are sorted
+ * by bucket with a counting sort, so a query only touches the buckets of the cells
+ * overlapping the box. The arrays are kept when the index is rebuilt, so rebuilding
+ * it every update creates no garbage once it held the largest number of points.
+ *
+ * Points are numbered in the order they were added. Add the points between clear()
+ * and build(), queries see the points of the last build.
+ *
+ * Note: the index is not thread safe, owners shared between threads synchronize.
+ */
+public class SpatialHash {
+
+	/** width and height of a cell */
+	private final int cellSize;
+
+	/** locations and buckets of the points */
+	private int[] xs = new int[16];
+	private int[] ys = new int[16];
+	private int[] buckets = new int[16];
+
+	/** number of points added, and of points sorted by the last build */
+	private int count = 0;
+	private int built = 0;
+
+	/** number of buckets minus one, the table size is a power of two */
+	private int mask = 0;
+
+	/** index of the first point of each bucket in entries, with a trailing end marker */
+	private int[] bucketStart = new int[2];
+
+	/** points sorted by bucket */
+	private int[] entries = new int[16];
+
+	/**
+	 * Creates an empty index with cells of the given size.
+	 */
+	public SpatialHash(int cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Removes all points.
+	 */
+	public void clear() {
+		count = 0;
+		built = 0;
+		mask = 0;
+		bucketStart[0] = 0;
+		bucketStart[1] = 0;
+	}
+
+	/**
+	 * Adds a point, returns its number. It is found by queries after the next build().
+	 */
+	public int add(int x, int y) {
+		if (count == xs.length) {
+			int capacity = 2*count;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			buckets = new int[capacity];
+			entries = new int[capacity];
+		}
+		xs[count] = x;
+		ys[count] = y;
+		return count++;
+	}
+
+	/**
+	 * Sorts the added points into their buckets.
+	 */
+	public void build() {
+		int size = Math.max(16, Integer.highestOneBit(Math.max(1, count - 1)) << 1);
+		if (bucketStart.length < size + 1) {
+			bucketStart = new int[size + 1];
+		}
+		else {
+			Arrays.fill(bucketStart, 0, size + 1, 0);
+		}
+		mask = size - 1;
+
+		// count the points in each bucket, shifted by one
+		for (int i = 0; i < count; i++) {
+			int b = bucket(Math.floorDiv(xs[i], cellSize), Math.floorDiv(ys[i], cellSize));
+			buckets[i] = b;
+			bucketStart[b + 1]++;
+		}
+
+		// prefix sum gives the start of each bucket
+		for (int b = 0; b < size; b++) {
+			bucketStart[b + 1] += bucketStart[b];
+		}
+
+		// place the points, which moves each start to the end of its bucket
+		for (int i = 0; i < count; i++) {
+			entries[bucketStart[buckets[i]]++] = i;
+		}
+		for (int b = size; b > 0; b--) {
+			bucketStart[b] = bucketStart[b - 1];
+		}
+		bucketStart[0] = 0;
+		built = count;
+	}
+
+	/**
+	 * Passes the number of each point within the given box (inclusive) to the action,
+	 * returns how many there were.
+	 */
+	public int query(int minX, int minY, int maxX, int maxY, IntConsumer action) {
+		if (built == 0 || minX > maxX || minY > maxY) {
+			return 0;
+		}
+
+		int c0 = Math.floorDiv(minX, cellSize);
+		int c1 = Math.floorDiv(maxX, cellSize);
+		int r0 = Math.floorDiv(minY, cellSize);
+		int r1 = Math.floorDiv(maxY, cellSize);
+		int found = 0;
+
+		if ((long)(c1 - c0 + 1)*(r1 - r0 + 1) > mask + 1) {
+			// more cells than buckets, test every point
+			for (int i = 0; i < built; i++) {
+				if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+					action.accept(i);
+					found++;
+				}
+			}
+			return found;
+		}
+
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				int b = bucket(c, r);
+				for (int e = bucketStart[b]; e < bucketStart[b + 1]; e++) {
+					int i = entries[e];
+					int x = xs[i];
+					int y = ys[i];
+					if (x < minX || x > maxX || y < minY || y > maxY) {
+						continue;
+					}
+					// skip the points of other cells sharing the bucket
+					if (Math.floorDiv(x, cellSize) != c || Math.floorDiv(y, cellSize) != r) {
+						continue;
+					}
+
+					action.accept(i);
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the number of points of the last build.
+	 */
+	public int size() {
+		return built;
+	}
+
+	/**
+	 * Returns the bucket of the cell in the given column and row.
+	 */
+	private int bucket(int c, int r) {
+		int h = c*0x9E3779B1 ^ r*0x85EBCA6B;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
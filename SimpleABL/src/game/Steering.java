@@ -0,0 +1,124 @@
+package game;
+
+import java.awt.Point;
+import java.util.ArrayList;
+
+/**
+ * Local avoidance for bots moving towards a target.
+ *
+ * All eight directions are evaluated against a single neighbor query, and the free
+ * direction that brings the bot closest to the target is chosen.
+ */
+public class Steering {
+
+	/** candidate directions, diagonals first so they win ties with the axis moves */
+	private static final int[][] Directions = {
+		{ -1, -1 }, { 1, -1 }, { -1, 1 }, { 1, 1 },
+		{ 0, -1 }, { 0, 1 }, { -1, 0 }, { 1, 0 }
+	};
+
+	/** the world the bots live in */
+	private final World world;
+
+	/** neighbors of the bot being steered, reused between calls */
+	private final ArrayList<Bot> neighbors = new ArrayList<Bot>();
+
+	/**
+	 * Creates a steering solver for the bots of the game.
+	 */
+	public Steering(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Returns the best collision free trajectory for the bot towards the target.
+	 *
+	 * separation - distance to keep from other bots
+	 * standoff - distance to keep from the target, the bot stops once it is this close
+	 *
+	 * Returns a zero trajectory if the bot has arrived or no direction gets it closer.
+	 */
+	public synchronized Point steer(Bot bot, int targetX, int targetY, int separation, int standoff) {
+		int x = bot.getX();
+		int y = bot.getY();
+		int speed = World.BotSpeed;
+		int diagonal = (int)(speed*Math.sqrt(2));
+
+		long dx = targetX - x;
+		long dy = targetY - y;
+		long current = dx*dx + dy*dy;
+		if (current < (long)standoff*standoff) {
+			return new Point(0, 0);
+		}//close enough to the target
+
+		int dist = separation + Bot.Size;
+		int reach = dist + Math.max(speed, diagonal);
+		neighbors.clear();
+		world.getBotGrid().query(x - reach, y - reach, x + reach, y + reach, neighbors);
+
+		Point best = new Point(0, 0);
+		long bestDistance = current;
+		for (int[] d : Directions) {
+			int step = (d[0] != 0 && d[1] != 0) ? diagonal : speed;
+			int newX = x + d[0]*step;
+			int newY = y + d[1]*step;
+
+			long ndx = targetX - newX;
+			long ndy = targetY - newY;
+			long distance = ndx*ndx + ndy*ndy;
+			if (distance >= bestDistance) {
+				continue;
+			}//no better than what we have
+
+			if (isBlocked(bot, newX, newY, dist)) {
+				continue;
+			}
+
+			bestDistance = distance;
+			best = new Point(newX - x, newY - y);
+		}
+
+		return best;
+	}
+
+	/**
+	 * Returns the best collision free trajectory for the bot along the flow field towards the player.
+	 *
+	 * Bots outside the flow field or without a path, or already next to the player, steer
+	 * straight at the player.
+	 */
+	public Point followFlow(Bot bot, int separation, int standoff) {
+		Point player = world.getPlayerLocation();
+		long dx = player.x - bot.getX();
+		long dy = player.y - bot.getY();
+		if (dx*dx + dy*dy < (long)standoff*standoff) {
+			return new Point(0, 0);
+		}//close enough to the player
+
+		Point waypoint = world.getFlowField().getWaypoint(bot.getX(), bot.getY(), Bot.Size);
+		if (waypoint == null) {
+			return steer(bot, player.x, player.y, separation, standoff);
+		}
+		return steer(bot, waypoint.x, waypoint.y, separation, 0);
+	}
+
+	/**
+	 * Checks if the bot would collide with a neighbor or a wall at the new location.
+	 */
+	private boolean isBlocked(Bot bot, int newX, int newY, int dist) {
+		for (Bot other : neighbors) {
+			if (other == bot) {
+				continue;
+			}
+
+			if (newX < other.getX() + dist &&
+					newX + dist > other.getX() &&
+					newY < other.getY() + dist &&
+					newY + dist > other.getY()) {
+				return true;
+			}//collision
+		}
+
+		return world.isWallCollision(newX, newY, Bot.Size);
+	}
+}
@@ -0,0 +1,140 @@
+package game;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds reproducible worlds for benchmarks and soak tests: many bots, many walls and
+ * a player controller that keeps the bullets flying.
+ *
+ * Everything is drawn from a Random seeded with the seed of the scenario, so the same
+ * settings give the same world and the same sequence of shots.
+ *
+ * Usage: StressScenario scenario = new StressScenario(seed);
+ *        World world = scenario.build();
+ *        simulation.setPlayerController(scenario.getPlayerController());
+ */
+public class StressScenario {
+
+	/** smallest and largest side of a wall */
+	private static final int MinWallSize = 8;
+	private static final int MaxWallSize = 40;
+
+	/** distance walls keep from the start location of the player */
+	private static final int PlayerClearance = 40;
+
+	/** updates between direction changes of the player */
+	private static final int TurnInterval = 40;
+
+	private final long seed;
+
+	private Point dimensions = new Point(2560, 1920);
+	private int bots = 10000;
+	private int walls = 1000;
+
+	/** updates between shots of the player, 0 never fires */
+	private int playerFireInterval = 1;
+
+	/** bullets fired at the player by random bots every update */
+	private int botShots = 20;
+
+	/**
+	 * Creates the default scenario: 10000 bots and 1000 walls in a 2560x1920 world.
+	 */
+	public StressScenario(long seed) {
+		this.seed = seed;
+	}
+
+	public StressScenario setDimensions(Point dimensions) {
+		this.dimensions = dimensions;
+		return this;
+	}
+
+	public StressScenario setBots(int bots) {
+		this.bots = bots;
+		return this;
+	}
+
+	public StressScenario setWalls(int walls) {
+		this.walls = walls;
+		return this;
+	}
+
+	/**
+	 * Sets the number of updates between shots of the player, 0 never fires.
+	 */
+	public StressScenario setPlayerFireInterval(int playerFireInterval) {
+		this.playerFireInterval = playerFireInterval;
+		return this;
+	}
+
+	/**
+	 * Sets the number of bullets random bots fire at the player every update.
+	 */
+	public StressScenario setBotShots(int botShots) {
+		this.botShots = botShots;
+		return this;
+	}
+
+	/**
+	 * Creates the world: walls first, then bots placed uniformly outside the walls.
+	 */
+	public World build() {
+		Random random = new Random(seed);
+		World world = new World(new Point(dimensions));
+		Point player = world.getPlayerLocation();
+
+		List<Wall> added = new ArrayList<Wall>(walls);
+		while (added.size() < walls) {
+			int width = MinWallSize + random.nextInt(MaxWallSize - MinWallSize + 1);
+			int height = MinWallSize + random.nextInt(MaxWallSize - MinWallSize + 1);
+			int x = random.nextInt(Math.max(1, dimensions.x - width));
+			int y = random.nextInt(Math.max(1, dimensions.y - height));
+
+			if (x < player.x + World.PlayerSize + PlayerClearance && x + width > player.x - PlayerClearance &&
+					y < player.y + World.PlayerSize + PlayerClearance && y + height > player.y - PlayerClearance) {
+				continue;
+			}
+			added.add(new Wall(new Point(x, y), width, height));
+		}
+		world.getWalls().addAll(added);
+		world.wallsChanged();
+
+		new BotSpawner(random).setPlacement(BotSpawner.Placement.UNIFORM).spawn(world, bots);
+
+		return world;
+	}
+
+	/**
+	 * Returns a controller that wanders the player around, fires at the closest bot and
+	 * has random bots fire at the player.
+	 */
+	public PlayerController getPlayerController() {
+		final Random random = new Random(seed + 1);
+		return new PlayerController() {
+			public void control(World world) {
+				long tick = world.getTicks();
+				if (tick % TurnInterval == 0) {
+					int dx = (random.nextInt(3) - 1)*World.PlayerSpeed;
+					int dy = (random.nextInt(3) - 1)*World.PlayerSpeed;
+					world.setPlayerTrajectory(new Point(dx, dy));
+				}
+				if (playerFireInterval > 0 && tick % playerFireInterval == 0) {
+					world.firePlayerBullet();
+				}
+
+				List<Bot> bots = world.getBots();
+				if (bots.isEmpty()) {
+					return;
+				}
+				Point target = world.getPlayerLocation();
+				for (int i = 0; i < botShots; i++) {
+					Bot bot = bots.get(random.nextInt(bots.size()));
+					world.fireBullet(bot.getLocation(), target);
+				}
+			}
+		};
+	}
+}
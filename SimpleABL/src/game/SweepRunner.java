@@ -0,0 +1,448 @@
+package game;
+
+import java.awt.Point;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import abl.runtime.BehavingEntity;
+
+/**
+ * Runs an agent headless for every combination of a set of parameter values and
+ * writes one CSV row of outcome and load metrics per combination.
+ *
+ * Parameters are the global variables of the agent, e.g. trustDecrease or sight
+ * for the Advanced agent, and are given as name=value1,value2,...
+ *
+ * Options:
+ *   --agent=class   agent to run (default abl.generated.ChaserAgent)
+ *   --seconds=n     simulated seconds per combination (default 60)
+ *   --period=ms     real time between world updates, 0 runs as fast as possible once the
+ *                   agent is behaving (default 50)
+ *   --bots=n        bots added to the default scene (default 0)
+ *   --threads=n     combinations run in parallel (default: number of processors)
+ *   --seed=n        seed for the bot placement and the scripted player (default 0)
+ *   --out=file      CSV file to write (default sweep.csv)
+ *   --restore=file  start every combination from a world checkpoint instead of the default scene
+ *   --stress=n      start every combination from a StressScenario with n bots instead of the default
+ *                   scene, and let its player controller fire
+ *   --walls=n       walls of the stress scenario (default: a tenth of its bots)
+ *   --despawnTrust=n  remove bots when their trust drops to n (default: never)
+ *   --despawnHits=n   remove bots after they were shot n times (default 0: never)
+ *   --save=prefix   save the final world of combination n to prefix-n.ckpt
+ *   --record=dir    record the bots of combination n in dir/n, see TrajectoryReader
+ *   --metrics=port  serve the phase timings on http://localhost:port/metrics, see Metrics
+ *   --dump=ms       print the phase timings of the last period every period
+ *   --inspect=port  stream the behavior trees of the agents to AbtViewer on the local port
+ *   --preconditions=file  count the precondition evaluations of each behavior and write
+ *                   the behaviors ranked by cost to file, see PreconditionStats
+ *
+ * Simulated time is the number of world updates times the default update period.
+ * Agents time their Wait behaviors with the wall clock, so runs with a shorter
+ * period than the default see fewer decisions per simulated second.
+ */
+public class SweepRunner {
+
+	/** options */
+	private String agentClass = "abl.generated.ChaserAgent";
+	private int seconds = 60;
+	private long period = Simulation.TickPeriod;
+	private int bots = 0;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long seed = 0;
+	private String out = "sweep.csv";
+	private String restore = null;
+	private int stress = 0;
+	private int walls = -1;
+	private int despawnTrust = World.NoDespawnTrust;
+	private int despawnHits = 0;
+	private String save = null;
+	private String record = null;
+	private int metricsPort = -1;
+	private long dumpPeriod = 0;
+	private String preconditions = null;
+	private int inspectPort = -1;
+
+	/** parameter names and their values, in the order given */
+	private final Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+
+	/**
+	 * Parses the arguments and runs the sweep.
+	 */
+	public static void main(String[] args) throws Exception {
+		SweepRunner runner = new SweepRunner();
+		runner.parse(args);
+		runner.run();
+	}
+
+	/**
+	 * Reads the options and parameter lists.
+	 */
+	private void parse(String[] args) {
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0) {
+				throw new IllegalArgumentException("Expected name=value: " + arg);
+			}
+
+			String name = arg.substring(0, eq);
+			String value = arg.substring(eq + 1);
+
+			if (name.equals("--agent")) {
+				agentClass = value;
+			}
+			else if (name.equals("--seconds")) {
+				seconds = Integer.parseInt(value);
+			}
+			else if (name.equals("--period")) {
+				period = Long.parseLong(value);
+			}
+			else if (name.equals("--bots")) {
+				bots = Integer.parseInt(value);
+			}
+			else if (name.equals("--threads")) {
+				threads = Integer.parseInt(value);
+			}
+			else if (name.equals("--seed")) {
+				seed = Long.parseLong(value);
+			}
+			else if (name.equals("--out")) {
+				out = value;
+			}
+			else if (name.equals("--restore")) {
+				restore = value;
+			}
+			else if (name.equals("--stress")) {
+				stress = Integer.parseInt(value);
+			}
+			else if (name.equals("--walls")) {
+				walls = Integer.parseInt(value);
+			}
+			else if (name.equals("--despawnTrust")) {
+				despawnTrust = Integer.parseInt(value);
+			}
+			else if (name.equals("--despawnHits")) {
+				despawnHits = Integer.parseInt(value);
+			}
+			else if (name.equals("--save")) {
+				save = value;
+			}
+			else if (name.equals("--record")) {
+				record = value;
+			}
+			else if (name.equals("--metrics")) {
+				metricsPort = Integer.parseInt(value);
+			}
+			else if (name.equals("--dump")) {
+				dumpPeriod = Long.parseLong(value);
+			}
+			else if (name.equals("--inspect")) {
+				inspectPort = Integer.parseInt(value);
+			}
+			else if (name.equals("--preconditions")) {
+				preconditions = value;
+			}
+			else if (name.startsWith("--")) {
+				throw new IllegalArgumentException("Unknown option: " + name);
+			}
+			else {
+				parameters.put(name, value.split(","));
+			}
+		}
+
+		if (stress > 0 && restore != null) {
+			throw new IllegalArgumentException("--stress and --restore can't be combined");
+		}
+		if (period < 0) {
+			throw new IllegalArgumentException("--period can't be negative: " + period);
+		}
+	}
+
+	/**
+	 * Runs every combination on a fixed pool and writes the results in combination order.
+	 */
+	private void run() throws Exception {
+		List<Map<String, String>> combinations = new ArrayList<Map<String, String>>();
+		expand(new ArrayList<String>(parameters.keySet()), 0, new LinkedHashMap<String, String>(), combinations);
+
+		if (metricsPort >= 0) {
+			System.out.println("Serving metrics on http://localhost:" + Metrics.serve(metricsPort) + Metrics.Path);
+		}
+		if (dumpPeriod > 0) {
+			Metrics.dump(dumpPeriod, System.out);
+		}
+		if (preconditions != null) {
+			PreconditionStats.setEnabled(true);
+		}
+		if (inspectPort >= 0) {
+			System.out.println("Inspecting behavior trees on port " + AbtInspector.serve(inspectPort));
+		}
+
+		// each running combination needs a thread for its agent and one for its updates
+		ExecutorService updates = Executors.newFixedThreadPool(threads);
+		ExecutorService agents = Executors.newCachedThreadPool();
+
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (int i = 0; i < combinations.size(); i++) {
+			final Map<String, String> combination = combinations.get(i);
+			final int index = i;
+			results.add(updates.submit(new Callable<String>() {
+				public String call() throws Exception {
+					return runCombination(index, combination, agents);
+				}
+			}));
+		}
+
+		PrintWriter writer = new PrintWriter(new FileWriter(out));
+		try {
+			writer.println(header());
+			for (int i = 0; i < results.size(); i++) {
+				writer.println(results.get(i).get());
+				writer.flush();
+				System.out.println("Finished " + (i + 1) + "/" + results.size() + ": " + combinations.get(i));
+			}
+		}
+		finally {
+			writer.close();
+			updates.shutdown();
+			agents.shutdown();
+			Metrics.stopServing();
+			AbtInspector.stop();
+		}
+
+		if (preconditions != null) {
+			try (PrintWriter report = new PrintWriter(new FileWriter(preconditions))) {
+				report.print(PreconditionStats.report());
+			}
+		}
+	}
+
+	/**
+	 * Adds the cartesian product of the values of the parameters from index on to the list.
+	 */
+	private void expand(List<String> names, int index, Map<String, String> current, List<Map<String, String>> combinations) {
+		if (index == names.size()) {
+			combinations.add(new LinkedHashMap<String, String>(current));
+			return;
+		}
+
+		String name = names.get(index);
+		for (String value : parameters.get(name)) {
+			current.put(name, value);
+			expand(names, index + 1, current, combinations);
+		}
+		current.remove(name);
+	}
+
+	/**
+	 * Runs one combination to the end and returns its CSV row.
+	 */
+	private String runCombination(int index, Map<String, String> combination, ExecutorService agents) throws Exception {
+		BehavingEntity agent;
+		try {
+			agent = (BehavingEntity)Class.forName(agentClass).getDeclaredConstructor().newInstance();
+		}
+		catch (InvocationTargetException e) {
+			// report what the constructor of the agent threw
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw e;
+		}
+		for (Map.Entry<String, String> parameter : combination.entrySet()) {
+			setParameter(agent, parameter.getKey(), parameter.getValue());
+		}
+
+		Random random = new Random(seed);
+		StressScenario scenario = null;
+		World world;
+		if (stress > 0) {
+			scenario = new StressScenario(seed).setBots(stress).setWalls(walls >= 0 ? walls : stress/10);
+			world = scenario.build();
+		}
+		else {
+			world = restore != null ? Checkpoint.load(Paths.get(restore)) : new World();
+		}
+		new BotSpawner(random).spawn(world, bots);
+		world.setDespawnRules(despawnTrust, despawnHits);
+
+		long ticks = seconds*1000L/Simulation.TickPeriod;
+		Simulation simulation = new Simulation(world, agent, period);
+		simulation.setPlayerController(scenario != null ? scenario.getPlayerController() : new ScriptedPlayer(random));
+
+		TrajectoryRecorder recorder = null;
+		if (record != null) {
+			recorder = new TrajectoryRecorder(Paths.get(record, Integer.toString(index)));
+			world.setRecorder(recorder);
+		}
+
+		long start = System.nanoTime();
+		simulation.run(agents, ticks);
+		double elapsed = (System.nanoTime() - start)/1e9;
+
+		if (recorder != null) {
+			world.setRecorder(null);
+			recorder.close();
+		}
+
+		if (save != null) {
+			Checkpoint.save(world, Paths.get(save + "-" + index + ".ckpt"));
+		}
+
+		StringBuilder row = new StringBuilder();
+		for (String value : combination.values()) {
+			row.append(value).append(',');
+		}
+		row.append(seconds).append(',');
+		row.append(world.getTicks()).append(',');
+		row.append(String.format("%.1f", world.getTicks()/elapsed)).append(',');
+		row.append(world.getPlayerHits()).append(',');
+		row.append(world.getBotHits()).append(',');
+		row.append(world.getStuckEvents()).append(',');
+		row.append(world.getDecisionBudget().getDeferred()).append(',');
+		row.append(world.getDecisionBudget().getRoundsOverBudget()).append(',');
+		row.append(trustStatistics(world));
+		return row.toString();
+	}
+
+	/**
+	 * Returns the CSV header line.
+	 */
+	private String header() {
+		StringBuilder header = new StringBuilder();
+		for (String name : parameters.keySet()) {
+			header.append(name).append(',');
+		}
+		header.append("seconds,ticks,ticksPerSecond,playerHits,botHits,stuckEvents,deferredDecisions,roundsOverBudget,");
+		header.append("bots,trustMean,trustMin,trustMax,trustStdDev,trusting,neutral,distrusting");
+		return header.toString();
+	}
+
+	/**
+	 * Sets a global variable of the agent, converting the value to the type of the field.
+	 */
+	private static void setParameter(BehavingEntity agent, String name, String value) throws Exception {
+		Field field = null;
+		for (Class<?> c = agent.getClass(); c != null && field == null; c = c.getSuperclass()) {
+			try {
+				field = c.getDeclaredField(name);
+			}
+			catch (NoSuchFieldException e) {}
+		}
+		if (field == null) {
+			throw new IllegalArgumentException("Agent " + agent.getClass().getName() + " has no variable " + name);
+		}
+
+		field.setAccessible(true);
+		Class<?> type = field.getType();
+		if (type == int.class) {
+			field.setInt(agent, Integer.parseInt(value));
+		}
+		else if (type == long.class) {
+			field.setLong(agent, Long.parseLong(value));
+		}
+		else if (type == float.class) {
+			field.setFloat(agent, Float.parseFloat(value));
+		}
+		else if (type == double.class) {
+			field.setDouble(agent, Double.parseDouble(value));
+		}
+		else if (type == boolean.class) {
+			field.setBoolean(agent, Boolean.parseBoolean(value));
+		}
+		else if (type == String.class) {
+			field.set(agent, value);
+		}
+		else {
+			throw new IllegalArgumentException("Variable " + name + " has unsupported type " + type.getName());
+		}
+	}
+
+	/**
+	 * Returns the CSV columns summarizing the trust levels of the bots.
+	 */
+	private static String trustStatistics(World world) {
+		List<Bot> bots = new ArrayList<Bot>(world.getBots());
+		int n = bots.size();
+		if (n == 0) {
+			return "0,,,,,0,0,0";
+		}
+
+		double sum = 0;
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		int trusting = 0;
+		int neutral = 0;
+		int distrusting = 0;
+		for (Bot bot : bots) {
+			int trust = bot.getTrust();
+			sum += trust;
+			min = Math.min(min, trust);
+			max = Math.max(max, trust);
+			if (trust > 0) {
+				trusting++;
+			}
+			else if (trust < 0) {
+				distrusting++;
+			}
+			else {
+				neutral++;
+			}
+		}
+
+		double mean = sum/n;
+		double variance = 0;
+		for (Bot bot : bots) {
+			variance += (bot.getTrust() - mean)*(bot.getTrust() - mean);
+		}
+
+		return n + "," + String.format("%.2f", mean) + "," + min + "," + max + "," +
+				String.format("%.2f", Math.sqrt(variance/n)) + "," + trusting + "," + neutral + "," + distrusting;
+	}
+
+	/**
+	 * Player that changes direction every couple of seconds and fires at regular intervals.
+	 */
+	private static class ScriptedPlayer implements PlayerController {
+
+		/** updates between direction changes */
+		private static final int TurnInterval = 40;
+
+		/** updates between shots */
+		private static final int FireInterval = 20;
+
+		private final Random random;
+
+		public ScriptedPlayer(Random random) {
+			this.random = random;
+		}
+
+		public void control(World world) {
+			long tick = world.getTicks();
+			if (tick % TurnInterval == 0) {
+				int dx = (random.nextInt(3) - 1)*World.PlayerSpeed;
+				int dy = (random.nextInt(3) - 1)*World.PlayerSpeed;
+				world.setPlayerTrajectory(new Point(dx, dy));
+			}
+			if (tick % FireInterval == 0) {
+				world.firePlayerBullet();
+			}
+		}
+	}
+}
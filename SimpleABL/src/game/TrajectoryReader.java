@@ -0,0 +1,179 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Scans the segments written by a TrajectoryRecorder in recording order.
+ *
+ * Usage: TrajectoryReader directory [--csv]
+ * prints a summary of the recording, or every bot of every record as CSV.
+ */
+public class TrajectoryReader {
+
+	/**
+	 * The bots of one recorded update. The arrays are reused between records and may be
+	 * longer than the number of bots.
+	 */
+	public static class Frame {
+		public long tick;
+		public int count;
+		public int[] ids = new int[0];
+		public int[] x = new int[0];
+		public int[] y = new int[0];
+		public int[] trajectoryX = new int[0];
+		public int[] trajectoryY = new int[0];
+		public int[] trust = new int[0];
+		public byte[] flags = new byte[0];
+
+		/**
+		 * Grows the columns to hold the given number of bots.
+		 */
+		private void ensureCapacity(int n) {
+			if (ids.length < n) {
+				ids = new int[n];
+				x = new int[n];
+				y = new int[n];
+				trajectoryX = new int[n];
+				trajectoryY = new int[n];
+				trust = new int[n];
+				flags = new byte[n];
+			}
+		}
+	}
+
+	/**
+	 * Receives the records of a recording.
+	 */
+	public interface Visitor {
+		public void visit(Frame frame);
+	}
+
+	/**
+	 * Passes every record in the directory to the visitor, oldest first.
+	 */
+	public static void scan(Path directory, Visitor visitor) throws IOException {
+		List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+				TrajectoryRecorder.Prefix + "*" + TrajectoryRecorder.Suffix)) {
+			for (Path path : paths) {
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					if (channel.size() < TrajectoryRecorder.HeaderSize) {
+						continue;
+					}
+
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+					buffer.order(ByteOrder.LITTLE_ENDIAN);
+					if (buffer.getInt(0) == 0) {
+						// mapped ahead of time, nothing written yet
+						continue;
+					}
+					if (buffer.getInt(0) != TrajectoryRecorder.Magic) {
+						throw new IOException("Not a trajectory segment: " + path);
+					}
+					if (buffer.getInt(4) != TrajectoryRecorder.Version) {
+						throw new IOException("Unsupported trajectory version " + buffer.getInt(4) + ": " + path);
+					}
+					segments.add(buffer);
+				}
+			}
+		}
+
+		Collections.sort(segments, new Comparator<MappedByteBuffer>() {
+			public int compare(MappedByteBuffer a, MappedByteBuffer b) {
+				return Long.compare(a.getLong(TrajectoryRecorder.SequenceOffset), b.getLong(TrajectoryRecorder.SequenceOffset));
+			}
+		});
+
+		Frame frame = new Frame();
+		for (MappedByteBuffer buffer : segments) {
+			int records = buffer.getInt(TrajectoryRecorder.RecordsOffset);
+			buffer.position(TrajectoryRecorder.HeaderSize);
+			for (int r = 0; r < records; r++) {
+				frame.tick = buffer.getLong();
+				int n = buffer.getInt();
+				frame.count = n;
+				frame.ensureCapacity(n);
+
+				readColumn(buffer, frame.ids, n);
+				readColumn(buffer, frame.x, n);
+				readColumn(buffer, frame.y, n);
+				readColumn(buffer, frame.trajectoryX, n);
+				readColumn(buffer, frame.trajectoryY, n);
+				readColumn(buffer, frame.trust, n);
+				buffer.get(frame.flags, 0, n);
+
+				visitor.visit(frame);
+			}
+		}
+	}
+
+	/**
+	 * Reads a column of n ints and moves past it.
+	 */
+	private static void readColumn(MappedByteBuffer buffer, int[] column, int n) {
+		buffer.asIntBuffer().get(column, 0, n);
+		buffer.position(buffer.position() + n*4);
+	}
+
+	/**
+	 * Prints a summary or a CSV dump of a recording.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: TrajectoryReader directory [--csv]");
+			return;
+		}
+
+		Path directory = Paths.get(args[0]);
+		if (args.length > 1 && args[1].equals("--csv")) {
+			System.out.println("tick,id,x,y,trajectoryX,trajectoryY,trust,flags");
+			scan(directory, new Visitor() {
+				public void visit(Frame f) {
+					for (int i = 0; i < f.count; i++) {
+						System.out.println(f.tick + "," + f.ids[i] + "," + f.x[i] + "," + f.y[i] + "," +
+								f.trajectoryX[i] + "," + f.trajectoryY[i] + "," + f.trust[i] + "," + f.flags[i]);
+					}
+				}
+			});
+			return;
+		}
+
+		final long[] summary = { 0, Long.MAX_VALUE, Long.MIN_VALUE, 0, 0, 0 };
+		scan(directory, new Visitor() {
+			public void visit(Frame f) {
+				summary[0]++;
+				summary[1] = Math.min(summary[1], f.tick);
+				summary[2] = Math.max(summary[2], f.tick);
+				summary[3] += f.count;
+				for (int i = 0; i < f.count; i++) {
+					summary[4] += f.trust[i];
+					if ((f.flags[i] & TrajectoryRecorder.Shot) != 0) {
+						summary[5]++;
+					}
+				}
+			}
+		});
+
+		if (summary[0] == 0) {
+			System.out.println("No records in " + directory);
+			return;
+		}
+		System.out.println("records:      " + summary[0]);
+		System.out.println("ticks:        " + summary[1] + " - " + summary[2]);
+		System.out.println("bots/record:  " + String.format("%.1f", (double)summary[3]/summary[0]));
+		System.out.println("mean trust:   " + String.format("%.2f", summary[3] == 0 ? 0.0 : (double)summary[4]/summary[3]));
+		System.out.println("shot samples: " + summary[5]);
+	}
+}
@@ -0,0 +1,308 @@
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the bots of a world after every update for offline analysis.
+ *
+ * Records are appended to memory-mapped segment files, so recording an update is a
+ * sequence of stores into mapped memory without any system calls. The segments form a
+ * ring: when the last one is full the oldest one is overwritten, which bounds the disk
+ * space of long runs. Use the TrajectoryReader to scan the segments.
+ *
+ * The next segment is mapped ahead of time and the full ones are forced to disk on a
+ * background thread, so the updating thread does not wait for the disk when the ring
+ * rotates; it only writes the header of the premapped segment.
+ *
+ * Each segment starts with a header (magic, version, sequence number, record count,
+ * bytes used) followed by the records. A record holds the update number and bot count
+ * followed by one column per field: ids, x, y, trajectory x, trajectory y, trust and
+ * flags. All values are little-endian.
+ */
+public class TrajectoryRecorder implements Closeable {
+
+	/** "TRJ1" in little-endian byte order */
+	public static final int Magic = 0x314A5254;
+
+	/** version of the format */
+	public static final int Version = 1;
+
+	/** default size of a segment (in bytes) */
+	public static final int SegmentSize = 64 << 20;
+
+	/** default number of segments in the ring */
+	public static final int Segments = 8;
+
+	/** flags of a bot */
+	public static final int Moved = 1;
+	public static final int Fired = 2;
+	public static final int TrustUpdated = 4;
+	public static final int Shot = 8;
+	public static final int Wandering = 16;
+
+	/** offsets of the segment header fields */
+	static final int SequenceOffset = 8;
+	static final int RecordsOffset = 16;
+	static final int UsedOffset = 20;
+	static final int HeaderSize = 24;
+
+	/** size of a record without the columns */
+	static final int RecordHeaderSize = 8 + 4;
+
+	/** size of the columns of one bot */
+	static final int BytesPerBot = 6*4 + 1;
+
+	/** file name of segments */
+	static final String Prefix = "segment-";
+	static final String Suffix = ".trj";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final int segments;
+
+	/** segment being written */
+	private MappedByteBuffer buffer;
+
+	/** sequence number of the segment being written, -1 before the first one */
+	private long sequence = -1;
+
+	/** records in the segment being written */
+	private int records;
+
+	/** the next segment, mapped in the background */
+	private Future<MappedByteBuffer> next;
+
+	/** maps and forces the segments */
+	private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "trajectory-recorder");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** the bots of the record being written, reused between records */
+	private Bot[] snapshot = new Bot[64];
+
+	/** bots in the snapshot */
+	private int snapshotSize = 0;
+
+	/**
+	 * Creates a recorder with the default ring size in the directory.
+	 */
+	public TrajectoryRecorder(Path directory) throws IOException {
+		this(directory, SegmentSize, Segments);
+	}
+
+	/**
+	 * Creates a recorder writing to a ring of the given number of segments in the directory.
+	 *
+	 * Segments left in the directory by a previous recording are deleted.
+	 */
+	public TrajectoryRecorder(Path directory, int segmentSize, int segments) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.segments = segments;
+
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> old = Files.newDirectoryStream(directory, Prefix + "*" + Suffix)) {
+			for (Path path : old) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	/**
+	 * Appends a record of the bots of the world.
+	 *
+	 * Note: call this from the thread updating the world, between updates.
+	 */
+	public void record(World world) {
+		int n = takeSnapshot(world);
+		Bot[] bots = snapshot;
+		int size = RecordHeaderSize + n*BytesPerBot;
+		if (buffer == null || buffer.remaining() < size) {
+			nextSegment(size);
+		}
+
+		int trustRound = world.getTrustRound();
+
+		buffer.putLong(world.getTicks());
+		buffer.putInt(n);
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(bots[i].getId());
+		}
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(bots[i].getX());
+		}
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(bots[i].getY());
+		}
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(bots[i].getTrajectoryX());
+		}
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(bots[i].getTrajectoryY());
+		}
+		for (int i = 0; i < n; i++) {
+			buffer.putInt(bots[i].getTrust());
+		}
+		for (int i = 0; i < n; i++) {
+			Bot b = bots[i];
+			int flags = 0;
+			if (world.isMoved(b)) {
+				flags |= Moved;
+			}
+			if (world.hasFired(b)) {
+				flags |= Fired;
+			}
+			if (world.isTrustUpdated(b)) {
+				flags |= TrustUpdated;
+			}
+			if (b.isShot(trustRound)) {
+				flags |= Shot;
+			}
+			if (b.isWandering()) {
+				flags |= Wandering;
+			}
+			buffer.put((byte)flags);
+		}
+
+		// commit the record
+		records++;
+		buffer.putInt(RecordsOffset, records);
+		buffer.putInt(UsedOffset, buffer.position());
+	}
+
+	/**
+	 * Copies the bots of the world into the snapshot in one pass, returns their number.
+	 *
+	 * The bot list is copy-on-write, so its iterator sees one consistent version even
+	 * while bots are added or removed.
+	 */
+	private int takeSnapshot(World world) {
+		int n = 0;
+		for (Bot b : world.getBots()) {
+			if (n == snapshot.length) {
+				snapshot = Arrays.copyOf(snapshot, 2*n);
+			}
+			snapshot[n++] = b;
+		}
+
+		// drop the bots removed since the last record
+		if (n < snapshotSize) {
+			Arrays.fill(snapshot, n, snapshotSize, null);
+		}
+		snapshotSize = n;
+		return n;
+	}
+
+	/**
+	 * Switches to the next segment of the ring, large enough for a record of the given size.
+	 */
+	private void nextSegment(int recordSize) {
+		MappedByteBuffer full = buffer;
+		if (full != null) {
+			background.execute(full::force);
+		}
+
+		sequence++;
+		records = 0;
+		int size = Math.max(segmentSize, HeaderSize + recordSize);
+		buffer = premapped(size);
+		if (buffer == null) {
+			buffer = map(sequence, size);
+		}
+
+		buffer.putInt(Magic).putInt(Version).putLong(sequence).putInt(0).putInt(HeaderSize);
+
+		// map the segment after this one while this one fills up
+		long following = sequence + 1;
+		next = background.submit(() -> map(following, segmentSize));
+	}
+
+	/**
+	 * Returns the segment mapped ahead of time if it holds the given size, null otherwise.
+	 */
+	private MappedByteBuffer premapped(int size) {
+		if (next == null) {
+			return null;
+		}
+
+		try {
+			MappedByteBuffer mapped = next.get();
+			return mapped.capacity() >= size ? mapped : null;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e) {
+			return null;
+		}
+		finally {
+			next = null;
+		}
+	}
+
+	/**
+	 * Maps the segment with the given sequence number with the given size.
+	 *
+	 * The old content of the file is kept until the header is written, so the reader
+	 * still finds the records of the segment being replaced, unless the file shrinks.
+	 */
+	private MappedByteBuffer map(long sequence, int size) {
+		Path path = directory.resolve(Prefix + (sequence % segments) + Suffix);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			boolean shrink = channel.size() > size;
+			if (shrink) {
+				channel.truncate(size);
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			if (shrink) {
+				// the header counts records cut off by the truncation
+				mapped.putInt(0, 0);
+			}
+			return mapped;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Flushes the segments to disk and stops the background thread.
+	 */
+	public void close() {
+		if (buffer != null) {
+			MappedByteBuffer last = buffer;
+			background.execute(last::force);
+			buffer = null;
+		}
+		next = null;
+		background.shutdown();
+		try {
+			background.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		Arrays.fill(snapshot, null);
+		snapshotSize = 0;
+	}
+}
@@ -0,0 +1,251 @@
+package game;
+
+import java.util.function.IntConsumer;
+
+import game.ecs.Component;
+import game.ecs.Entities;
+
+/**
+ * Occupancy bitmap of an entity table of walls, used for constant time obstacle tests,
+ * and a spatial index of its rows, used to find the walls in a box.
+ *
+ * The map is split into square cells and a cell is marked as blocked if any wall
+ * overlaps it. The cells are grouped into tiles of 64 by 64 cells, each stored as one
+ * 64 bit word per row, so testing a box only needs a few word lookups per row instead
+ * of a test against every wall. Only tiles with walls get a bitmap, so a large world
+ * with few walls needs little memory. Each tile also lists the walls overlapping it.
+ *
+ * Tests are conservative: if walls are not aligned to the cell size, boxes up to a
+ * cell away from a wall may also be reported as blocked. Parts of walls and boxes
+ * outside of the world are ignored.
+ *
+ * Note: the map reads the table while it is built and queried, don't change it after.
+ */
+public class WallMap {
+
+	/** default width and height of a cell (in pixels) */
+	public static final int CellSize = 4;
+
+	/** cells per side of a tile, the bits of a 64 bit word */
+	private static final int TileBits = 6;
+
+	/** width and height of a cell */
+	private final int cellSize;
+
+	/** number of columns and rows of cells */
+	private final int cols;
+	private final int rows;
+
+	/** number of columns of tiles */
+	private final int tileCols;
+
+	/** blocked cells of each tile, one bit per cell, null for tiles without walls */
+	private final long[][] tiles;
+
+	/** index of the first wall of each tile in tileWalls, with a trailing end marker */
+	private final int[] tileWallStart;
+
+	/** rows of the walls sorted by the tiles they overlap */
+	private final int[] tileWalls;
+
+	/** the walls, with positions and colliders */
+	private final Entities walls;
+
+	/**
+	 * Rasterizes the table of walls into a map covering the given world size.
+	 */
+	public WallMap(Entities walls, int cellSize, int width, int height) {
+		if (!walls.hasAll(Component.POSITION, Component.COLLIDER)) {
+			throw new IllegalArgumentException("Walls need positions and colliders");
+		}
+
+		this.walls = walls;
+		this.cellSize = cellSize;
+		this.cols = width/cellSize + 1;
+		this.rows = height/cellSize + 1;
+		this.tileCols = (cols + 63) >>> TileBits;
+		int tileRows = (rows + 63) >>> TileBits;
+		this.tiles = new long[tileCols*tileRows][];
+		this.tileWallStart = new int[tileCols*tileRows + 1];
+
+		// mark the cells and count the walls of each tile
+		int listed = 0;
+		for (int w = 0; w < walls.size(); w++) {
+			int x = (int)walls.getX(w);
+			int y = (int)walls.getY(w);
+			int wallWidth = walls.getWidth(w);
+			int wallHeight = walls.getHeight(w);
+			if (wallWidth <= 0 || wallHeight <= 0) {
+				continue;
+			}
+
+			int c0 = Math.max(0, Math.floorDiv(x, cellSize));
+			int c1 = Math.min(cols - 1, Math.floorDiv(x + wallWidth - 1, cellSize));
+			int r0 = Math.max(0, Math.floorDiv(y, cellSize));
+			int r1 = Math.min(rows - 1, Math.floorDiv(y + wallHeight - 1, cellSize));
+			if (c0 > c1 || r0 > r1) {
+				continue;
+			}
+
+			for (int tr = r0 >>> TileBits; tr <= r1 >>> TileBits; tr++) {
+				for (int tc = c0 >>> TileBits; tc <= c1 >>> TileBits; tc++) {
+					int t = tr*tileCols + tc;
+					if (tiles[t] == null) {
+						tiles[t] = new long[64];
+					}
+					tileWallStart[t + 1]++;
+					listed++;
+
+					int first = Math.max(c0, tc << TileBits);
+					int last = Math.min(c1, (tc << TileBits) + 63);
+					long mask = (-1L << (first & 63)) & (-1L >>> (63 - (last & 63)));
+					for (int r = Math.max(r0, tr << TileBits); r <= Math.min(r1, (tr << TileBits) + 63); r++) {
+						tiles[t][r & 63] |= mask;
+					}
+				}
+			}
+		}
+
+		// prefix sum gives the start of each tile
+		for (int t = 0; t < tiles.length; t++) {
+			tileWallStart[t + 1] += tileWallStart[t];
+		}
+
+		// list the walls
+		tileWalls = new int[listed];
+		int[] next = new int[tiles.length];
+		for (int w = 0; w < walls.size(); w++) {
+			int x = (int)walls.getX(w);
+			int y = (int)walls.getY(w);
+			int wallWidth = walls.getWidth(w);
+			int wallHeight = walls.getHeight(w);
+			if (wallWidth <= 0 || wallHeight <= 0) {
+				continue;
+			}
+
+			int c0 = Math.max(0, Math.floorDiv(x, cellSize));
+			int c1 = Math.min(cols - 1, Math.floorDiv(x + wallWidth - 1, cellSize));
+			int r0 = Math.max(0, Math.floorDiv(y, cellSize));
+			int r1 = Math.min(rows - 1, Math.floorDiv(y + wallHeight - 1, cellSize));
+			if (c0 > c1 || r0 > r1) {
+				continue;
+			}
+
+			for (int tr = r0 >>> TileBits; tr <= r1 >>> TileBits; tr++) {
+				for (int tc = c0 >>> TileBits; tc <= c1 >>> TileBits; tc++) {
+					int t = tr*tileCols + tc;
+					tileWalls[tileWallStart[t] + next[t]++] = w;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Is the given point covered by a wall?
+	 */
+	public boolean isBlocked(int x, int y) {
+		return overlaps(x, y, 1, 1);
+	}
+
+	/**
+	 * Does the box with the given top left corner and size overlap a wall?
+	 */
+	public boolean overlaps(int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0) {
+			return false;
+		}
+
+		int c0 = Math.max(0, Math.floorDiv(x, cellSize));
+		int c1 = Math.min(cols - 1, Math.floorDiv(x + width - 1, cellSize));
+		int r0 = Math.max(0, Math.floorDiv(y, cellSize));
+		int r1 = Math.min(rows - 1, Math.floorDiv(y + height - 1, cellSize));
+		// outside of the map
+		if (c0 > c1 || r0 > r1) {
+			return false;
+		}
+
+		int w0 = c0 >>> TileBits;
+		int w1 = c1 >>> TileBits;
+		long firstMask = -1L << (c0 & 63);
+		long lastMask = -1L >>> (63 - (c1 & 63));
+
+		for (int r = r0; r <= r1; r++) {
+			int tileRow = (r >>> TileBits)*tileCols;
+			for (int w = w0; w <= w1; w++) {
+				long[] tile = tiles[tileRow + w];
+				if (tile == null) {
+					continue;
+				}
+
+				long mask = -1L;
+				if (w == w0) {
+					mask &= firstMask;
+				}
+				if (w == w1) {
+					mask &= lastMask;
+				}
+				if ((tile[r & 63] & mask) != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Passes the row of each wall overlapping the given box (inclusive) to the action,
+	 * returns how many there were.
+	 */
+	public int query(int minX, int minY, int maxX, int maxY, IntConsumer action) {
+		int c0 = Math.max(0, Math.floorDiv(minX, cellSize));
+		int c1 = Math.min(cols - 1, Math.floorDiv(maxX, cellSize));
+		int r0 = Math.max(0, Math.floorDiv(minY, cellSize));
+		int r1 = Math.min(rows - 1, Math.floorDiv(maxY, cellSize));
+		if (c0 > c1 || r0 > r1) {
+			return 0;
+		}
+
+		int tc0 = c0 >>> TileBits;
+		int tc1 = c1 >>> TileBits;
+		int tr0 = r0 >>> TileBits;
+		int tr1 = r1 >>> TileBits;
+		int found = 0;
+		for (int tr = tr0; tr <= tr1; tr++) {
+			for (int tc = tc0; tc <= tc1; tc++) {
+				int t = tr*tileCols + tc;
+				for (int i = tileWallStart[t]; i < tileWallStart[t + 1]; i++) {
+					int w = tileWalls[i];
+					int x = (int)walls.getX(w);
+					int y = (int)walls.getY(w);
+					if (x > maxX || x + walls.getWidth(w) <= minX ||
+							y > maxY || y + walls.getHeight(w) <= minY) {
+						continue;
+					}
+
+					// a wall spanning several tiles is passed by the first of them in the box
+					int first = Math.max(tc0, Math.max(0, Math.floorDiv(x, cellSize)) >>> TileBits);
+					int top = Math.max(tr0, Math.max(0, Math.floorDiv(y, cellSize)) >>> TileBits);
+					if (tc == first && tr == top) {
+						action.accept(w);
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the table of walls the map was built from.
+	 */
+	public Entities getWalls() {
+		return walls;
+	}
+
+	/**
+	 * Returns the width and height of a cell.
+	 */
+	public int getCellSize() {
+		return cellSize;
+	}
+}
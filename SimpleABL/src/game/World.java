@@ -0,0 +1,1219 @@
+package game;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import abl.runtime.BehavingEntity;
+import game.ecs.CollisionSystem;
+import game.ecs.Component;
+import game.ecs.CullingSystem;
+import game.ecs.Entities;
+import game.ecs.MovementSystem;
+
+/**
+ * State and rules of a single simulation: the player, bots, bullets and walls.
+ *
+ * A world does not depend on a window, so any number of worlds can be simulated
+ * in one JVM. Agents are attached to the world they act in, and their sensors and
+ * actions look up the world through the agent that is executing them.
+ *
+ * @author Ben Weber 3-7-11
+ */
+public class World {
+
+	/** size of the player character */
+	public static final int PlayerSize = 10;
+
+	/** speed of the player character */
+	public static final int PlayerSpeed = 4;
+
+	/** speed of the bots */
+	public static final int BotSpeed = 2;
+
+	/**
+	 * Bot ids are a slot number in the low IdSlotBits bits and the generation of the slot
+	 * above them. A slot freed by a despawned bot is reused with the next generation, so
+	 * the id of a despawned bot never finds the bot that took its place.
+	 */
+	public static final int IdSlotBits = 22;
+	private static final int IdSlotMask = (1 << IdSlotBits) - 1;
+	private static final int IdGenerations = 1 << (31 - IdSlotBits);
+
+	/** despawned bots kept for reuse */
+	private static final int MaxPooledBots = 1024;
+
+	/** width and height of a cell of the bullet index (in pixels) */
+	private static final int BulletCellSize = 64;
+
+	/** despawn trust that never despawns a bot */
+	public static final int NoDespawnTrust = Integer.MIN_VALUE;
+
+	/** who's bullet is it? */
+	public enum bulletorigin {
+		PLAYER,
+		FACTION1,
+		FACTION2
+	}
+
+	/** latency of the phases of an update */
+	private static final Histogram TickTime = Metrics.timer("tick");
+	private static final Histogram UpdateLocationsTime = Metrics.timer("tick.updateLocations");
+	private static final Histogram PlayerTime = Metrics.timer("tick.updateLocations.player");
+	private static final Histogram FlowFieldTime = Metrics.timer("tick.updateLocations.flowField");
+	private static final Histogram SweepBulletsTime = Metrics.timer("tick.updateLocations.sweepBullets");
+	private static final Histogram CheckShotPlayerTime = Metrics.timer("tick.updateLocations.checkShotPlayer");
+	private static final Histogram CheckShotBotsTime = Metrics.timer("tick.updateLocations.checkShotBots");
+	private static final Histogram BotsTime = Metrics.timer("tick.updateLocations.bots");
+	private static final Histogram BotGridTime = Metrics.timer("tick.updateLocations.botGrid");
+	private static final Histogram NextMoveRoundTime = Metrics.timer("tick.updateLocations.nextMoveRound");
+	private static final Histogram UpdateBulletsTime = Metrics.timer("tick.updateBullets");
+	private static final Histogram DespawnTime = Metrics.timer("tick.despawn");
+	private static final Histogram RecordTime = Metrics.timer("tick.record");
+
+	/** entity counts of each update */
+	private static final Histogram BotCount = Metrics.counts("world.bots");
+	private static final Histogram BulletCount = Metrics.counts("world.bullets");
+	private static final Histogram DeferredCount = Metrics.counts("world.deferredDecisions");
+
+	/** worlds by the agents acting in them */
+	private static final Map<BehavingEntity, World> agentWorlds =
+			Collections.synchronizedMap(new WeakHashMap<BehavingEntity, World>());
+
+	/** scene dimensions */
+	private Point dimensions;
+
+	/** location of the player character */
+	private Point playerLocation;
+
+	/** trajectory of the player character */
+	private Point playerTrajectory = new Point(0, 0);
+
+	/** the player as an entity, moved and stopped at walls by the systems */
+	private final Entities player = new Entities(Component.POSITION, Component.VELOCITY,
+			Component.COLLIDER, Component.FACTION);
+
+	/** location of the chaser */
+	private Point chaserLocation;
+
+	/** trajectory of the chaser */
+	private Point chaserTrajectory = new Point(0, 0);
+
+	/**
+	 * The list of bots. Agents iterate over it while the world updates, so changes copy
+	 * the list and every iteration sees a consistent snapshot.
+	 */
+	private CopyOnWriteArrayList<Bot> bots = new CopyOnWriteArrayList<Bot>();
+
+	/** next unused id slot */
+	private int nextBotId = 0;
+
+	/** ids of freed slots, with the generation advanced */
+	private int[] freeIds = new int[16];
+	private int freeIdCount = 0;
+
+	/** the state of the bots, each bot is a view of a row */
+	private final BotStore botStore = new BotStore();
+
+	/** despawned bots, reusable from the next update on */
+	private ArrayDeque<Bot> botPool = new ArrayDeque<Bot>();
+	private ArrayList<Bot> despawned = new ArrayList<Bot>();
+
+	/** bots despawn when their trust drops to this level, NoDespawnTrust never */
+	private volatile int despawnTrust = NoDespawnTrust;
+
+	/** bots despawn after being shot this many times, 0 never */
+	private volatile int despawnHits = 0;
+
+	/** the list of walls */
+	private ArrayList<Wall> walls = new ArrayList<Wall>();
+
+	/** occupancy bitmap of the table of walls, rebuilt when the walls change */
+	private volatile WallMap wallMap;
+
+	/** spatial indexes of the bot locations, the one not published is rebuilt every tick */
+	private final BotGrid[] botGrids = { new BotGrid(BotGrid.CellSize), new BotGrid(BotGrid.CellSize) };
+	private volatile BotGrid botGrid = botGrids[0];
+
+	/** local avoidance solver used by the steering action */
+	private Steering steering = new Steering(this);
+
+	/** decides how often each bot is reasoned about */
+	private LodScheduler lodScheduler = new LodScheduler();
+
+	/** caps the time the agent spends on movement decisions each round */
+	private DecisionBudget decisionBudget = new DecisionBudget();
+
+	/** radius around the player in which the interest managed sensors report bots, 0 reports all */
+	private volatile int interestRadius = 0;
+
+	/** paths towards the player, recomputed when the player changes cell */
+	private volatile FlowField flowField;
+
+	/** did the player fire a bullet */
+	private boolean spawnBullet = false;
+
+	/** bullets which have been fired by both players */
+	private final BulletStore bullets = new BulletStore();
+
+	/** spatial index of the bullet rows, rebuilt after the bullets move */
+	private final SpatialHash bulletIndex = new SpatialHash(BulletCellSize);
+
+	/** systems updating the entity tables */
+	private final MovementSystem movement = new MovementSystem();
+	private final CollisionSystem collisions = new CollisionSystem();
+	private final CullingSystem culling = new CullingSystem();
+
+	/**
+	 * Round counters. A bot has moved (fired, updated trust) this round when the round it
+	 * last recorded matches the current counter, so a reset is a single increment. Only
+	 * the updates start move rounds, agents start fire and trust rounds.
+	 */
+	private final AtomicInteger moveRound = new AtomicInteger();
+	private final AtomicInteger fireRound = new AtomicInteger();
+	private final AtomicInteger trustRound = new AtomicInteger();
+
+	/** number of updates since the world was created */
+	private volatile long ticks = 0;
+
+	/** number of times the player has been shot */
+	private int playerHits = 0;
+
+	/** number of times a bot has been shot */
+	private int botHits = 0;
+
+	/** number of times a bot reported that it is stuck */
+	private AtomicInteger stuckEvents = new AtomicInteger();
+
+	/** bots by id */
+	private Map<Integer, Bot> botIndex = new ConcurrentHashMap<Integer, Bot>();
+
+	/** changes made to the world, read by the sensors */
+	private ChangeLog changeLog = new ChangeLog();
+
+	/** records the bots after every update, if set */
+	private TrajectoryRecorder recorder;
+
+	/**
+	 * Creates the default scene: a single bot in the center and a wall.
+	 */
+	public World() {
+		this(new Point(640, 480));
+
+		// spawn a single default bot
+		Bot b = createBot();
+		b.setLocation(new Point(dimensions.x/2, dimensions.y/2));
+		addBot(b);
+
+		Wall w = new Wall(new Point(60, 60), 100, 60);
+		addWall(w);
+	}
+
+	/**
+	 * Creates an empty scene with the given dimensions.
+	 */
+	public World(Point dimensions) {
+		this.dimensions = dimensions;
+		this.playerLocation = new Point((int)(dimensions.x - dimensions.x/4), (int)(dimensions.y - dimensions.y/4));
+		this.chaserLocation = new Point((int)(dimensions.x*Math.random()), (int)(dimensions.y*Math.random()));
+
+		int row = player.create();
+		player.setSize(row, PlayerSize, PlayerSize);
+		player.setFaction(row, bulletorigin.PLAYER.ordinal());
+	}
+
+	/**
+	 * Returns the number of bytes write() needs for the current state.
+	 */
+	int checkpointSize() {
+		return 21*4 + 2*8 + 1 + walls.size()*4*4 + bots.size()*Bot.CheckpointSize + 4 + freeIdCount*4 + bullets.checkpointSize();
+	}
+
+	/**
+	 * Writes the state of the world to a checkpoint.
+	 *
+	 * Derived state like the wall map, bot grid and paths is not written, and neither
+	 * are the change log and the statistics of the decision budget.
+	 */
+	void write(ByteBuffer buffer) {
+		buffer.putInt(dimensions.x).putInt(dimensions.y);
+		buffer.putInt(playerLocation.x).putInt(playerLocation.y);
+		buffer.putInt(playerTrajectory.x).putInt(playerTrajectory.y);
+		buffer.putInt(chaserLocation.x).putInt(chaserLocation.y);
+		buffer.putInt(chaserTrajectory.x).putInt(chaserTrajectory.y);
+		buffer.putInt(nextBotId);
+		buffer.putInt(moveRound.get()).putInt(fireRound.get()).putInt(trustRound.get());
+		buffer.putLong(ticks);
+		buffer.putInt(playerHits).putInt(botHits).putInt(stuckEvents.get());
+		buffer.putInt(interestRadius).putInt(lodScheduler.getBand());
+		buffer.putLong(decisionBudget.getBudget());
+		buffer.put((byte)(spawnBullet ? 1 : 0));
+
+		buffer.putInt(walls.size());
+		for (Wall w : walls) {
+			buffer.putInt(w.getX()).putInt(w.getY()).putInt(w.getWidth()).putInt(w.getHeight());
+		}
+
+		buffer.putInt(bots.size());
+		for (Bot b : bots) {
+			b.write(buffer);
+		}
+
+		buffer.putInt(freeIdCount);
+		for (int i = 0; i < freeIdCount; i++) {
+			buffer.putInt(freeIds[i]);
+		}
+
+		bullets.write(buffer);
+	}
+
+	/**
+	 * Reads a world written by write().
+	 */
+	static World read(ByteBuffer buffer, int version) {
+		World world = new World(new Point(buffer.getInt(), buffer.getInt()));
+		world.playerLocation = new Point(buffer.getInt(), buffer.getInt());
+		world.playerTrajectory = new Point(buffer.getInt(), buffer.getInt());
+		world.chaserLocation = new Point(buffer.getInt(), buffer.getInt());
+		world.chaserTrajectory = new Point(buffer.getInt(), buffer.getInt());
+		world.nextBotId = buffer.getInt();
+		world.moveRound.set(buffer.getInt());
+		world.fireRound.set(buffer.getInt());
+		world.trustRound.set(buffer.getInt());
+		world.ticks = buffer.getLong();
+		world.playerHits = buffer.getInt();
+		world.botHits = buffer.getInt();
+		world.stuckEvents.set(buffer.getInt());
+		world.interestRadius = buffer.getInt();
+		world.lodScheduler.setBand(buffer.getInt());
+		world.decisionBudget.setBudget(buffer.getLong());
+		world.spawnBullet = buffer.get() != 0;
+
+		int wallCount = buffer.getInt();
+		for (int i = 0; i < wallCount; i++) {
+			world.walls.add(new Wall(new Point(buffer.getInt(), buffer.getInt()), buffer.getInt(), buffer.getInt()));
+		}
+		world.wallsChanged();
+
+		int botCount = buffer.getInt();
+		List<Bot> restored = new ArrayList<Bot>(botCount);
+		for (int i = 0; i < botCount; i++) {
+			restored.add(Bot.read(buffer, version, world.botStore));
+		}
+		world.addBots(restored);
+		world.rebuildBotGrid();
+
+		// version 1 predates despawning, all slots below nextBotId hold bots
+		if (version >= 2) {
+			int freeIdCount = buffer.getInt();
+			world.freeIds = new int[Math.max(16, freeIdCount)];
+			for (int i = 0; i < freeIdCount; i++) {
+				world.freeIds[i] = buffer.getInt();
+			}
+			world.freeIdCount = freeIdCount;
+		}
+
+		world.bullets.read(buffer);
+		world.indexBullets();
+		return world;
+	}
+
+	/**
+	 * Attaches an agent to this world, its sensors and actions will act on this world.
+	 */
+	public void attach(BehavingEntity agent) {
+		agentWorlds.put(agent, this);
+		Metrics.instrument(agent);
+		AgentEvents.instrument(agent);
+		PreconditionStats.instrument(agent);
+		AbtInspector.instrument(agent);
+	}
+
+	/**
+	 * Returns the world the agent is attached to.
+	 */
+	public static World of(BehavingEntity agent) {
+		World world = agentWorlds.get(agent);
+		if (world == null) {
+			throw new IllegalStateException("Agent " + agent + " is not attached to a world");
+		}
+		return world;
+	}
+
+	/**
+	 * Advances the simulation by one step.
+	 */
+	public void tick() {
+		long start = System.nanoTime();
+		updateLocations();
+		long t = System.nanoTime();
+		updateBullets();
+		t = UpdateBulletsTime.lap(t);
+		despawn();
+		t = DespawnTime.lap(t);
+		ticks++;
+
+		if (recorder != null) {
+			recorder.record(this);
+			t = RecordTime.lap(t);
+		}
+
+		TickTime.record(t - start);
+		BotCount.record(bots.size());
+		BulletCount.record(bullets.size());
+	}
+
+	/**
+	 * Sets the recorder that records the bots after every update, null stops recording.
+	 */
+	public void setRecorder(TrajectoryRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Updates bullet locations and spawns new bullets.
+	 */
+	public void updateBullets() {
+
+		// update bullet positions
+		movement.update(bullets);
+
+		// remove bullets that hit something or are out of bounds
+		culling.update(bullets, dimensions.x, dimensions.y);
+
+		// spawn player bullets
+		if (spawnBullet) {
+			spawnBullet = false;
+			Point botToShootLocation = PlayerLocationFire();
+			if (botToShootLocation != null && bullets.fire(playerLocation, botToShootLocation, bulletorigin.PLAYER)) {
+				changeLog.record(ChangeLog.BulletFired, -1);
+			}
+		}
+
+		indexBullets();
+	}
+
+	/**
+	 * Rebuilds the spatial index of the bullet rows.
+	 */
+	private void indexBullets() {
+		synchronized (bullets) {
+			bulletIndex.clear();
+			for (int i = 0; i < bullets.size(); i++) {
+				bulletIndex.add((int)bullets.getX(i), (int)bullets.getY(i));
+			}
+			bulletIndex.build();
+		}
+	}
+	public Point PlayerLocationFire() {
+
+		Point botToShoot = null;
+		double playerX, playerY, botX, botY;
+		playerX = this.getPlayerLocation().getX();
+		playerY = this.getPlayerLocation().getY();
+		double short_distance = 10000.0f;
+		for (Bot b : bots) {
+			botX = b.getX();
+			botY = b.getY();
+			double diff_x = (botY - playerY) * (botY - playerY);
+			double diff_y = (botX - playerX) * (botX - playerX);
+			double distance_to_check = Math.sqrt(diff_x + diff_y);
+			if (distance_to_check < short_distance) {
+				short_distance = distance_to_check;
+				botToShoot = b.getLocation();
+			}
+		}
+		return botToShoot;
+	}
+	/**
+	 * Updates the positions of objects in the scene based on their trajectories and the dimensions of the scene.
+	 */
+	public void updateLocations() {
+		long start = System.nanoTime();
+
+		// update player location
+		int playerX = playerLocation.x + playerTrajectory.x;
+		playerX = Math.max(0, playerX);
+		playerX = Math.min(dimensions.x, playerX);
+
+		int playerY = playerLocation.y + playerTrajectory.y;
+		playerY = Math.max(0, playerY);
+		playerY = Math.min(dimensions.y, playerY);
+
+		// the systems stop the player at walls
+		player.setPosition(0, playerLocation.x, playerLocation.y);
+		player.setVelocity(0, playerX - playerLocation.x, playerY - playerLocation.y);
+		collisions.sweepWalls(player, getWallMap());
+		movement.update(player);
+
+		playerX = (int)player.getX(0);
+		playerY = (int)player.getY(0);
+		if (playerX != playerLocation.x || playerY != playerLocation.y) {
+			playerLocation = new Point(playerX, playerY);
+			changeLog.record(ChangeLog.PlayerMoved, -1);
+		}
+		long t = PlayerTime.lap(start);
+
+		updateFlowField();
+		t = FlowFieldTime.lap(t);
+
+		sweepBullets();
+		t = SweepBulletsTime.lap(t);
+		checkShotPlayer();
+		t = CheckShotPlayerTime.lap(t);
+		checkShotBots();
+		t = CheckShotBotsTime.lap(t);
+
+		// update bot locations
+		for(Bot b : this.bots) {
+			int botX = b.getX() + b.getTrajectoryX();
+			botX = Math.max(0, botX);
+			botX = Math.min(dimensions.x, botX);
+
+			int botY = b.getY() + b.getTrajectoryY();
+			botY = Math.max(0, botY);
+			botY = Math.min(dimensions.y, botY);
+
+			if(false == isWallCollision(botX, botY, b.getSize())) {
+				b.setLocation(botX, botY);
+			}
+		}
+		t = BotsTime.lap(t);
+
+		rebuildBotGrid();
+		t = BotGridTime.lap(t);
+
+		// every bot may choose a new trajectory once per tick
+		nextMoveRound();
+		t = NextMoveRoundTime.lap(t);
+		UpdateLocationsTime.record(t - start);
+	}
+
+
+	/**
+	 * Recomputes the paths towards the player if the player moved to another cell.
+	 */
+	private FlowField updateFlowField() {
+		FlowField field = flowField;
+		Point player = playerLocation;
+		if (field == null || !field.isTarget(player.x, player.y, PlayerSize)) {
+			field = FlowField.compute(this, FlowField.CellSize, FlowField.Reach, player.x, player.y, PlayerSize);
+			flowField = field;
+		}
+		return field;
+	}
+
+	/**
+	 * check for collisions between a square object, e.g. the player or a bot, and the walls
+	 */
+	public boolean isWallCollision(int x, int y, int size) {
+		return collisions.overlapsWall(getWallMap(), x, y, size, size);
+	}
+
+	/**
+	 * finds where the bullets hit a wall during their next step
+	 */
+	public void sweepBullets() {
+		collisions.sweepWalls(bullets, getWallMap());
+	}
+
+	/**
+	 * check for collisions between bullets and player during the next bullet step
+	 */
+	public boolean checkShotPlayer() {
+		boolean shot = false;
+		synchronized (bullets) {
+			for(int i = 0; i < bullets.size(); i++) {
+				// a bullet reaching a wall this step still hits what stands before the wall
+				if(bullets.getOrigin(i) != bulletorigin.PLAYER && !bullets.isDead(i) &&
+						collisions.sweep(bullets, i, playerLocation.x, playerLocation.y, PlayerSize, PlayerSize) <= Math.min(1, bullets.getRange(i))) {
+					bullets.kill(i);
+					playerHits++;
+					shot = true;
+				}
+			}
+		}
+		return shot;
+	}
+
+
+	/**
+	 * check for collisions between bullets and bots during the next bullet step.
+	 * notify bot if they have been shot by a player.
+	 */
+	public void checkShotBots() {
+		int size = Bot.Size;
+		ArrayList<Bot> candidates = new ArrayList<Bot>();
+
+		synchronized (bullets) {
+			for(int i = 0; i < bullets.size(); i++) {
+				if(bullets.getOrigin(i) != bulletorigin.PLAYER || bullets.isDead(i)) {
+					continue;
+				}
+
+				// bots overlapping the path of the bullet
+				int x0 = (int)bullets.getX(i);
+				int y0 = (int)bullets.getY(i);
+				int x1 = (int)(bullets.getX(i) + bullets.getdX(i));
+				int y1 = (int)(bullets.getY(i) + bullets.getdY(i));
+				candidates.clear();
+				botGrid.query(Math.min(x0, x1) - size, Math.min(y0, y1) - size,
+						Math.max(x0, x1) + Bullet.Size, Math.max(y0, y1) + Bullet.Size, candidates);
+
+				// only bots before the wall the bullet reaches this step, if any
+				Bot hit = null;
+				double first = Math.min(1, bullets.getRange(i));
+				for(Bot bot : candidates) {
+					double t = collisions.sweep(bullets, i, bot.getX(), bot.getY(), size, size);
+					if(t <= first) {
+						first = t;
+						hit = bot;
+					}
+				}
+
+				if(hit != null) {
+					bullets.kill(i);
+					botHits++;
+					hit.setShot(trustRound.get());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the trajectory of the chaser object.
+	 *
+	 * Note: This is invoked via ABL physical acts
+	 */
+	public void setChaserTrajectory(Point trajectory) {
+		chaserTrajectory = trajectory;
+	}
+
+	/**
+	 * Fires a bullet from the chaser at the player.
+	 */
+	public void fireBullet(Point source, Point target) {
+		if (bullets.fire(source, target, bulletorigin.FACTION1)) {
+			changeLog.record(ChangeLog.BulletFired, -1);
+		}
+	}
+
+	/**
+	 * Makes the player fire a bullet at the closest bot during the next update.
+	 */
+	public void firePlayerBullet() {
+		spawnBullet = true;
+	}
+
+	/**
+	 * Returns the location of the player.
+	 */
+	public Point getPlayerLocation() {
+		return playerLocation;
+	}
+
+	/**
+	 * Returns the trajectory of the player.
+	 */
+	public Point getPlayerTrajectory() {
+		return playerTrajectory;
+	}
+
+	/**
+	 * Sets the trajectory of the player.
+	 */
+	public void setPlayerTrajectory(Point playerTrajectory) {
+		if (!playerTrajectory.equals(this.playerTrajectory)) {
+			this.playerTrajectory = playerTrajectory;
+			changeLog.record(ChangeLog.PlayerMoved, -1);
+		}
+	}
+
+	/**
+	 * Returns the location of the chaser.
+	 */
+	public Point getChaserLocation() {
+		return chaserLocation;
+	}
+
+	/**
+	 * Returns the trajectory of the chaser.
+	 */
+	public Point getChaserTrajectory() {
+		return chaserTrajectory;
+	}
+
+	/**
+	 * Returns list of all bots
+	 *
+	 * Note: use addBot() to add a bot.
+	 */
+	public List<Bot> getBots() {
+		return bots;
+	}
+
+	/**
+	 * Returns a new bot id, reusing the slot of a despawned bot if there is one.
+	 */
+	public synchronized int nextBotId() {
+		if (freeIdCount > 0) {
+			return freeIds[--freeIdCount];
+		}
+		if (nextBotId > IdSlotMask) {
+			throw new IllegalStateException("Out of bot ids, more than " + (IdSlotMask + 1) + " bots");
+		}
+		return nextBotId++;
+	}
+
+	/**
+	 * Returns the number of id slots handed out so far, an upper bound of the slots of the bots.
+	 */
+	public synchronized int getBotSlots() {
+		return nextBotId;
+	}
+
+	/**
+	 * Frees the slot of the id for reuse with the next generation.
+	 */
+	private synchronized void releaseBotId(int id) {
+		int generation = ((id >>> IdSlotBits) + 1) % IdGenerations;
+		if (freeIdCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, 2*freeIds.length);
+		}
+		freeIds[freeIdCount++] = (generation << IdSlotBits) | (id & IdSlotMask);
+	}
+
+	/**
+	 * Returns the slot of a bot id, which is below the number of slots ever used.
+	 */
+	public static int botIdSlot(int id) {
+		return id & IdSlotMask;
+	}
+
+	/**
+	 * Returns the generation of a bot id, the number of times its slot was reused.
+	 */
+	public static int botIdGeneration(int id) {
+		return id >>> IdSlotBits;
+	}
+
+	/**
+	 * Returns a bot with a new id that is not yet in the world, reusing a despawned bot if
+	 * there is one. Add it with addBot() or addBots().
+	 */
+	public Bot createBot() {
+		int id = nextBotId();
+		synchronized (botPool) {
+			Bot bot = botPool.poll();
+			if (bot != null) {
+				bot.reset(id);
+				return bot;
+			}
+		}
+		return new Bot(botStore, id);
+	}
+
+	/**
+	 * Returns the store holding the state of the bots.
+	 */
+	public BotStore getBotStore() {
+		return botStore;
+	}
+
+	/**
+	 * Returns the spatial index of the bots as of the last tick.
+	 */
+	public BotGrid getBotGrid() {
+		return botGrid;
+	}
+
+	/**
+	 * Rebuilds the grid not published last with the current bot locations and publishes it.
+	 */
+	private void rebuildBotGrid() {
+		BotGrid next = botGrid == botGrids[0] ? botGrids[1] : botGrids[0];
+		next.rebuild(bots);
+		botGrid = next;
+	}
+
+	/**
+	 * Adds the bots within the radius of the given point to result, using the grid of the last update.
+	 */
+	public List<Bot> getBotsNear(int x, int y, int radius, List<Bot> result) {
+		int start = result.size();
+		botGrid.query(x - radius, y - radius, x + radius, y + radius, result);
+
+		long r2 = (long)radius*radius;
+		int kept = start;
+		for (int i = start; i < result.size(); i++) {
+			Bot bot = result.get(i);
+			long dx = bot.getX() - x;
+			long dy = bot.getY() - y;
+			if (dx*dx + dy*dy <= r2) {
+				result.set(kept++, bot);
+			}
+		}
+		result.subList(kept, result.size()).clear();
+		return result;
+	}
+
+	/**
+	 * Returns the radius around the player in which the interest managed sensors report bots.
+	 */
+	public int getInterestRadius() {
+		return interestRadius;
+	}
+
+	/**
+	 * Sets the radius around the player in which the interest managed sensors report bots, 0 reports all bots.
+	 */
+	public void setInterestRadius(int interestRadius) {
+		this.interestRadius = interestRadius;
+	}
+
+	/**
+	 * Returns the local avoidance solver for the bots.
+	 */
+	public Steering getSteering() {
+		return steering;
+	}
+
+	/**
+	 * Returns the level of detail scheduler of the bots.
+	 */
+	public LodScheduler getLodScheduler() {
+		return lodScheduler;
+	}
+
+	/**
+	 * Returns the time budget for the movement decisions of the agent.
+	 */
+	public DecisionBudget getDecisionBudget() {
+		return decisionBudget;
+	}
+
+	/**
+	 * Returns the paths towards the player.
+	 */
+	public FlowField getFlowField() {
+		return updateFlowField();
+	}
+
+	/**
+	 * Returns list of all walls
+	 *
+	 * Note: call wallsChanged() after modifying the list.
+	 */
+	public ArrayList<Wall> getWalls() {
+		return walls;
+	}
+
+	/**
+	 * Adds a wall to the map.
+	 */
+	public void addWall(Wall wall) {
+		walls.add(wall);
+		wallsChanged();
+	}
+
+	/**
+	 * Removes a wall from the map.
+	 */
+	public void removeWall(Wall wall) {
+		walls.remove(wall);
+		wallsChanged();
+	}
+
+	/**
+	 * Discards the wall bitmap and the paths around the walls, they are rebuilt on next use.
+	 */
+	public void wallsChanged() {
+		wallMap = null;
+		flowField = null;
+	}
+
+	/**
+	 * Returns the occupancy bitmap of the walls, built from a table of the walls with
+	 * positions and colliders.
+	 */
+	public WallMap getWallMap() {
+		WallMap map = wallMap;
+		if (map == null) {
+			Entities table = new Entities(Component.POSITION, Component.COLLIDER);
+			for (Wall w : walls) {
+				int row = table.create();
+				table.setPosition(row, w.getX(), w.getY());
+				table.setSize(row, w.getWidth(), w.getHeight());
+			}
+			map = new WallMap(table, WallMap.CellSize, dimensions.x, dimensions.y);
+			wallMap = map;
+		}
+		return map;
+	}
+
+	/**
+	 * Returns the spatial index of the bullet rows as of the last update, its point numbers
+	 * are the rows. Lock the bullets while querying it, bullets fired since the update
+	 * are missing.
+	 */
+	public SpatialHash getBulletIndex() {
+		return bulletIndex;
+	}
+
+	/*
+	 * Returns the store of all bullets
+	 */
+	public BulletStore getBullets() {
+		return bullets;
+	}
+
+	/**
+	 * Marks the first bullet not fired by the given side that overlaps the box as spent,
+	 * returns false if there is none.
+	 */
+	public boolean hitBullet(int x, int y, int size, bulletorigin except) {
+		return collisions.hit(bullets, x, y, size, size, except.ordinal());
+	}
+
+	public void addBots(int formPos) {
+		Bot b = createBot();
+		b.setLocation(new Point(dimensions.x/2, dimensions.y/2));
+		b.setFormPos(formPos);
+		addBot(b);
+	}
+
+	/**
+	 * Adds a bot to the world, use this instead of adding to the list of bots directly.
+	 */
+	public void addBot(Bot bot) {
+		bot.setChangeLog(changeLog);
+		botIndex.put(bot.getId(), bot);
+		bots.add(bot);
+		changeLog.record(ChangeLog.BotSpawned, bot.getId());
+	}
+
+	/**
+	 * Adds a batch of bots to the world, growing the list and recording the spawns once.
+	 *
+	 * Note: see BotSpawner for creating batches.
+	 */
+	public void addBots(Collection<Bot> batch) {
+		int[] ids = new int[batch.size()];
+		int i = 0;
+		for (Bot bot : batch) {
+			bot.setChangeLog(changeLog);
+			botIndex.put(bot.getId(), bot);
+			ids[i++] = bot.getId();
+		}
+		bots.addAll(batch);
+		changeLog.record(ChangeLog.BotSpawned, ids);
+	}
+
+	/**
+	 * Removes a bot from the world, its id is freed and the bot reused from the next update on.
+	 */
+	public void removeBot(Bot bot) {
+		removeBots(Collections.singletonList(bot));
+	}
+
+	/**
+	 * Removes a batch of bots from the world, copying the list and recording the removals once.
+	 */
+	public void removeBots(Collection<Bot> batch) {
+		final Set<Bot> removed = Collections.newSetFromMap(new IdentityHashMap<Bot, Boolean>());
+		for (Bot bot : batch) {
+			if (botIndex.remove(bot.getId(), bot)) {
+				removed.add(bot);
+			}
+		}
+		if (removed.isEmpty()) {
+			return;
+		}
+
+		bots.removeIf(bot -> removed.contains(bot));
+
+		int[] ids = new int[removed.size()];
+		int i = 0;
+		for (Bot bot : removed) {
+			ids[i++] = bot.getId();
+			bot.setChangeLog(null);
+			releaseBotId(bot.getId());
+		}
+		changeLog.record(ChangeLog.BotRemoved, ids);
+
+		synchronized (botPool) {
+			despawned.addAll(removed);
+		}
+	}
+
+	/**
+	 * Removes the bots that meet the despawn rules, and makes the bots despawned before
+	 * this update available for reuse.
+	 *
+	 * Bots are reused an update late, so an agent that looked up a bot just before it
+	 * despawned can't change the bot that took its place.
+	 */
+	private void despawn() {
+		synchronized (botPool) {
+			for (Bot bot : despawned) {
+				if (botPool.size() < MaxPooledBots) {
+					botPool.add(bot);
+				}
+				else {
+					bot.release();
+				}
+			}
+			despawned.clear();
+		}
+
+		int trust = despawnTrust;
+		int hits = despawnHits;
+		if (trust == NoDespawnTrust && hits <= 0) {
+			return;
+		}
+
+		List<Bot> expired = null;
+		for (Bot bot : bots) {
+			if (bot.getTrust() <= trust || (hits > 0 && bot.getHits() >= hits)) {
+				if (expired == null) {
+					expired = new ArrayList<Bot>();
+				}
+				expired.add(bot);
+			}
+		}
+		if (expired != null) {
+			removeBots(expired);
+		}
+	}
+
+	/**
+	 * Sets the rules for removing bots: when their trust drops to the given level
+	 * (NoDespawnTrust never) or after they were shot the given number of times (0 never).
+	 */
+	public void setDespawnRules(int trust, int hits) {
+		this.despawnTrust = trust;
+		this.despawnHits = hits;
+	}
+
+	/**
+	 * Returns the trust level at which bots despawn, NoDespawnTrust if never.
+	 */
+	public int getDespawnTrust() {
+		return despawnTrust;
+	}
+
+	/**
+	 * Returns the number of hits after which bots despawn, 0 if never.
+	 */
+	public int getDespawnHits() {
+		return despawnHits;
+	}
+
+	/**
+	 * Returns the bot with the given id, or null if there is none.
+	 */
+	public Bot getBot(int id) {
+		return botIndex.get(id);
+	}
+
+	/**
+	 * Returns the changes made to the world.
+	 */
+	public ChangeLog getChangeLog() {
+		return changeLog;
+	}
+
+	/**
+	 * Returns the current move round.
+	 */
+	public int getMoveRound() {
+		return moveRound.get();
+	}
+
+	/**
+	 * Starts a new move round, clearing the moved state of the bots that are due and fit in the decision budget.
+	 *
+	 * The budget is started for the round before the round is published, so no bot is
+	 * asked about a round the budget doesn't know yet. Only the updates call this.
+	 */
+	private void nextMoveRound() {
+		int round = moveRound.get() + 1;
+		decisionBudget.startRound(this, round);
+		DeferredCount.record(decisionBudget.getLastDeferred());
+		moveRound.set(round);
+	}
+
+	/**
+	 * Is the bot done with its movement in the current move round?
+	 *
+	 * It is if the agent moved it, or if the level of detail scheduler doesn't have it
+	 * decide this round, or if it is outside the interest radius of the world, or if
+	 * the decision budget defers it.
+	 */
+	public boolean isMoved(Bot bot) {
+		return isMoved(bot.getId(), bot.getX(), bot.getY(), bot.getMovedRound());
+	}
+
+	/**
+	 * Is the bot with the given id and location, last moved in the given round, done
+	 * with its movement in the current move round?
+	 */
+	public boolean isMoved(int id, int x, int y, int movedRound) {
+		int round = moveRound.get();
+		return movedRound == round || isMoveSkipped(id, x, y, round, movedRound);
+	}
+
+	/**
+	 * Do the schedulers skip the movement of the bot in the given move round?
+	 */
+	private boolean isMoveSkipped(int id, int x, int y, int round, int movedRound) {
+		Point player = playerLocation;
+		long interest = interestRadius;
+		if (interest > 0) {
+			long dx = x - player.x;
+			long dy = y - player.y;
+			if (dx*dx + dy*dy > interest*interest) {
+				return true;
+			}
+		}
+		return !lodScheduler.isDue(id, x, y, round, movedRound, player) || decisionBudget.isDeferred(id, round);
+	}
+
+	/**
+	 * Marks the bot as moved in the current move round after the agent decided on its movement.
+	 */
+	public void markMoved(Bot bot) {
+		int round = moveRound.get();
+		bot.setMoved(round);
+		decisionBudget.decided(bot, round);
+	}
+
+	/**
+	 * Returns the current fire round.
+	 */
+	public int getFireRound() {
+		return fireRound.get();
+	}
+
+	/**
+	 * Has the bot fired in the current fire round, or is it not due to fire?
+	 */
+	public boolean hasFired(Bot bot) {
+		return hasFired(bot.getId(), bot.getX(), bot.getY(), bot.getFiredRound());
+	}
+
+	/**
+	 * Has the bot with the given id and location, last fired in the given round, fired
+	 * in the current fire round, or is it not due to fire?
+	 */
+	public boolean hasFired(int id, int x, int y, int firedRound) {
+		int round = fireRound.get();
+		return firedRound == round || !lodScheduler.isDue(id, x, y, round, playerLocation);
+	}
+
+	/**
+	 * Starts a new fire round, clearing the fired state of all bots.
+	 */
+	public void nextFireRound() {
+		fireRound.incrementAndGet();
+	}
+
+	/**
+	 * Returns the current trust round.
+	 */
+	public int getTrustRound() {
+		return trustRound.get();
+	}
+
+	/**
+	 * Has the bot updated its trust in the current trust round, or is it not due to?
+	 */
+	public boolean isTrustUpdated(Bot bot) {
+		return isTrustUpdated(bot.getId(), bot.getX(), bot.getY(), bot.getTrustUpdatedRound(), bot.getShotRound());
+	}
+
+	/**
+	 * Has the bot with the given id and location, which last updated its trust and was
+	 * last shot in the given rounds, updated its trust in the current trust round, or
+	 * is it not due to? A bot shot this round is always due, so distant bots never miss a hit.
+	 */
+	public boolean isTrustUpdated(int id, int x, int y, int trustUpdatedRound, int shotRound) {
+		int round = trustRound.get();
+		if (trustUpdatedRound == round) {
+			return true;
+		}
+		return shotRound != round && !lodScheduler.isDue(id, x, y, round, playerLocation);
+	}
+
+	/**
+	 * Starts a new trust round, clearing the shot and trust updated state of all bots.
+	 */
+	public void nextTrustRound() {
+		trustRound.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of updates since the world was created.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the number of times the player has been shot.
+	 */
+	public int getPlayerHits() {
+		return playerHits;
+	}
+
+	/**
+	 * Returns the number of times a bot has been shot.
+	 */
+	public int getBotHits() {
+		return botHits;
+	}
+
+	/**
+	 * Records that a bot could not move.
+	 */
+	public void countStuckEvent() {
+		stuckEvents.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of times a bot reported that it is stuck.
+	 */
+	public int getStuckEvents() {
+		return stuckEvents.get();
+	}
+
+	public Point getDimensions() {
+		return dimensions;
+	}
+
+	/**
+	 * Sets the dimensions, the wall bitmap and the paths sized for the old ones are
+	 * rebuilt on next use and the bot grid is rebuilt right away.
+	 *
+	 * Note: call this from the thread updating the world, between updates.
+	 *
+	 * @param dimensions the dimensions to set
+	 */
+	public void setDimensions(Point dimensions) {
+		this.dimensions = dimensions;
+		wallsChanged();
+		rebuildBotGrid();
+	}
+}
@@ -0,0 +1,129 @@
+package game.ecs;
+
+import game.WallMap;
+
+/**
+ * Finds where moving entities hit walls and boxes during their next step, and
+ * whether a box overlaps a wall.
+ *
+ * Entities are tested as their bounding box swept along the velocity, so fast and
+ * small entities don't pass through what lies between two locations. The bullets and
+ * the player are swept, the world tests the bots, which are not entities, as boxes at
+ * their next location, so everything meets the walls through this system.
+ */
+public class CollisionSystem {
+
+	/**
+	 * Computes how far along its next step each entity of the table travels before it
+	 * hits a wall and stores it as the collider range.
+	 *
+	 * The step is sampled at intervals no longer than the entity or a wall cell,
+	 * so the entity can't pass through a wall between two samples. The start of a step
+	 * is only tested for entities standing still, so an entity overlapping a wall can
+	 * still step out of it.
+	 */
+	public void sweepWalls(Entities entities, WallMap walls) {
+		if (!entities.hasAll(Component.POSITION, Component.VELOCITY, Component.COLLIDER)) {
+			throw new IllegalArgumentException("Sweeps need positions, velocities and colliders");
+		}
+
+		synchronized (entities) {
+			for (int i = 0; i < entities.size(); i++) {
+				double x = entities.getX(i);
+				double y = entities.getY(i);
+				double dx = entities.getdX(i);
+				double dy = entities.getdY(i);
+				int width = entities.getWidth(i);
+				int height = entities.getHeight(i);
+				double length = Math.sqrt(dx*dx + dy*dy);
+				int step = Math.max(1, Math.min(Math.min(width, height), walls.getCellSize()));
+				int samples = (int)Math.ceil(length/step);
+
+				double hit = Double.POSITIVE_INFINITY;
+				for (int s = samples == 0 ? 0 : 1; s <= samples; s++) {
+					double t = samples == 0 ? 0 : (double)s/samples;
+					if (overlapsWall(walls, (int)(x + t*dx), (int)(y + t*dy), width, height)) {
+						hit = t;
+						break;
+					}
+				}
+				entities.setRange(i, hit);
+			}
+		}
+	}
+
+	/**
+	 * Does the box overlap a wall?
+	 */
+	public boolean overlapsWall(WallMap walls, int x, int y, int width, int height) {
+		return walls.overlaps(x, y, width, height);
+	}
+
+	/**
+	 * Returns the fraction of its next step at which the entity first overlaps the box,
+	 * or a value above 1 if it misses the box.
+	 */
+	public double sweep(Entities entities, int i, int boxX, int boxY, int boxWidth, int boxHeight) {
+		double x = entities.getX(i);
+		double y = entities.getY(i);
+		double dx = entities.getdX(i);
+		double dy = entities.getdY(i);
+		double enter = 0;
+		double exit = 1;
+
+		// x axis
+		double low = boxX - entities.getWidth(i);
+		double high = boxX + boxWidth;
+		if (dx == 0) {
+			if (x <= low || x >= high) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		else {
+			double t1 = (low - x)/dx;
+			double t2 = (high - x)/dx;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+
+		// y axis
+		low = boxY - entities.getHeight(i);
+		high = boxY + boxHeight;
+		if (dy == 0) {
+			if (y <= low || y >= high) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		else {
+			double t1 = (low - y)/dy;
+			double t2 = (high - y)/dy;
+			enter = Math.max(enter, Math.min(t1, t2));
+			exit = Math.min(exit, Math.max(t1, t2));
+		}
+
+		return enter < exit ? enter : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Kills the first live entity not of the given faction whose box overlaps the box
+	 * at its current location, returns false if there is none.
+	 */
+	public boolean hit(Entities entities, int boxX, int boxY, int boxWidth, int boxHeight, int exceptFaction) {
+		synchronized (entities) {
+			for (int i = 0; i < entities.size(); i++) {
+				if (entities.getFaction(i) == exceptFaction || entities.isDead(i)) {
+					continue;
+				}
+
+				int x = (int)entities.getX(i);
+				int y = (int)entities.getY(i);
+				if (boxX < x + entities.getWidth(i) && boxX + boxWidth > x &&
+						boxY < y + entities.getHeight(i) && boxY + boxHeight > y) {
+					entities.kill(i);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,17 @@
+package game.ecs;
+
+/**
+ * Components an entity table can hold, each one a set of dense columns.
+ */
+public enum Component {
+	/** location (in pixels) */
+	POSITION,
+	/** step taken every update (in pixels) */
+	VELOCITY,
+	/** size of the bounding box and how far along its next step the entity hits a wall */
+	COLLIDER,
+	/** trust towards the player */
+	TRUST,
+	/** side the entity is on */
+	FACTION
+}
@@ -0,0 +1,32 @@
+package game.ecs;
+
+/**
+ * Removes killed entities, entities that leave the world and moving entities that
+ * hit a wall.
+ */
+public class CullingSystem {
+
+	/**
+	 * Removes the culled entities of the table, keeping the order of the others.
+	 */
+	public void update(Entities entities, int width, int height) {
+		boolean position = entities.has(Component.POSITION);
+		boolean walls = entities.hasAll(Component.VELOCITY, Component.COLLIDER);
+
+		synchronized (entities) {
+			for (int i = 0; i < entities.size(); i++) {
+				if (position) {
+					double x = entities.getX(i);
+					double y = entities.getY(i);
+					if (x < 0 || x > width || y < 0 || y > height) {
+						entities.kill(i);
+					}
+				}
+				if (walls && entities.getRange(i) <= 1) {
+					entities.kill(i);
+				}
+			}
+			entities.removeDead();
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package game.ecs;
+
+import java.util.EnumSet;
+
+import game.EntityStore;
+
+/**
+ * Table of entities that all have the same components, kept outside the Java heap.
+ *
+ * Each component the table is created with adds its columns, so a table of bullets
+ * holds no trust levels and the systems iterating it touch only the columns they need.
+ * A new type of entity gets a table of its own and is updated by the same systems.
+ *
+ * An entity is addressed by its row. Killed entities stay in the table until the
+ * culling system removes them, which moves the rows after them down.
+ *
+ * Note: the accessors don't synchronize, lock the table while using them:
+ *   synchronized (entities) { for (int i = 0; i < entities.size(); i++) ... }
+ */
+public class Entities extends EntityStore {
+
+	/** flag of a killed entity */
+	private static final byte Dead = 1;
+
+	private final EnumSet<Component> components;
+
+	/** the columns, -1 if the table lacks the component */
+	private final int x;
+	private final int y;
+	private final int dx;
+	private final int dy;
+	private final int width;
+	private final int height;
+	private final int range;
+	private final int trust;
+	private final int faction;
+	private final int flags;
+
+	/**
+	 * Creates a table of entities with the given components.
+	 */
+	public Entities(Component... components) {
+		this.components = EnumSet.noneOf(Component.class);
+		for (Component c : components) {
+			this.components.add(c);
+		}
+
+		boolean position = has(Component.POSITION);
+		x = position ? addDoubleColumn() : -1;
+		y = position ? addDoubleColumn() : -1;
+
+		boolean velocity = has(Component.VELOCITY);
+		dx = velocity ? addDoubleColumn() : -1;
+		dy = velocity ? addDoubleColumn() : -1;
+
+		boolean collider = has(Component.COLLIDER);
+		width = collider ? addIntColumn() : -1;
+		height = collider ? addIntColumn() : -1;
+		range = collider ? addDoubleColumn() : -1;
+
+		trust = has(Component.TRUST) ? addIntColumn() : -1;
+		faction = has(Component.FACTION) ? addByteColumn() : -1;
+		flags = addByteColumn();
+	}
+
+	/**
+	 * Does the table hold the component?
+	 */
+	public boolean has(Component component) {
+		return components.contains(component);
+	}
+
+	/**
+	 * Does the table hold all the components?
+	 */
+	public boolean hasAll(Component... components) {
+		for (Component c : components) {
+			if (!has(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds an entity with all fields 0, returns its row.
+	 *
+	 * The collider range starts out infinite, the entity hits no wall until swept.
+	 */
+	public synchronized int create() {
+		int row = addRow();
+		if (range >= 0) {
+			setDouble(range, row, Double.POSITIVE_INFINITY);
+		}
+		return row;
+	}
+
+	/**
+	 * Marks the entity for removal by the culling system.
+	 */
+	public void kill(int i) {
+		setByte(flags, i, (byte)(getByte(flags, i) | Dead));
+	}
+
+	public boolean isDead(int i) {
+		return (getByte(flags, i) & Dead) != 0;
+	}
+
+	/**
+	 * Removes the killed entities, keeping the order of the others.
+	 */
+	public synchronized void removeDead() {
+		int kept = 0;
+		for (int i = 0; i < size(); i++) {
+			if (isDead(i)) {
+				continue;
+			}
+			if (kept != i) {
+				moveRow(i, kept);
+			}
+			kept++;
+		}
+		truncate(kept);
+	}
+
+	public double getX(int i) {
+		return getDouble(x, i);
+	}
+
+	public double getY(int i) {
+		return getDouble(y, i);
+	}
+
+	public void setPosition(int i, double x, double y) {
+		setDouble(this.x, i, x);
+		setDouble(this.y, i, y);
+	}
+
+	public double getdX(int i) {
+		return getDouble(dx, i);
+	}
+
+	public double getdY(int i) {
+		return getDouble(dy, i);
+	}
+
+	public void setVelocity(int i, double dx, double dy) {
+		setDouble(this.dx, i, dx);
+		setDouble(this.dy, i, dy);
+	}
+
+	public int getWidth(int i) {
+		return getInt(width, i);
+	}
+
+	public int getHeight(int i) {
+		return getInt(height, i);
+	}
+
+	public void setSize(int i, int width, int height) {
+		setInt(this.width, i, width);
+		setInt(this.height, i, height);
+	}
+
+	/**
+	 * Returns how far along its next step the entity travels before it hits a wall,
+	 * above 1 if it hits none.
+	 */
+	public double getRange(int i) {
+		return getDouble(range, i);
+	}
+
+	public void setRange(int i, double range) {
+		setDouble(this.range, i, range);
+	}
+
+	public int getTrust(int i) {
+		return getInt(trust, i);
+	}
+
+	public void setTrust(int i, int trust) {
+		setInt(this.trust, i, trust);
+	}
+
+	public int getFaction(int i) {
+		return getByte(faction, i);
+	}
+
+	public void setFaction(int i, int faction) {
+		setByte(this.faction, i, (byte)faction);
+	}
+}
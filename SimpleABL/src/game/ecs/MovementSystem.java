@@ -0,0 +1,30 @@
+package game.ecs;
+
+/**
+ * Moves entities one step along their velocity.
+ *
+ * Entities with a collider don't step into walls: if the collision system found a wall
+ * along the step they stay where they are, and the culling system removes the ones
+ * that don't outlive hitting a wall.
+ */
+public class MovementSystem {
+
+	/**
+	 * Moves every entity of the table, which needs positions and velocities.
+	 */
+	public void update(Entities entities) {
+		if (!entities.hasAll(Component.POSITION, Component.VELOCITY)) {
+			throw new IllegalArgumentException("Movement needs positions and velocities");
+		}
+
+		boolean collider = entities.has(Component.COLLIDER);
+		synchronized (entities) {
+			for (int i = 0; i < entities.size(); i++) {
+				if (collider && entities.getRange(i) <= 1) {
+					continue;
+				}
+				entities.setPosition(i, entities.getX(i) + entities.getdX(i), entities.getY(i) + entities.getdY(i));
+			}
+		}
+	}
+}
@@ -16,7 +16,7 @@ public class Spawn implements IInput {
 		Object object[] = null;
 		
 		if(keyCode == this.triggerKeyCode) {
-			(new AddBot()).execute(object);
+			(new AddBot(gameEngine.getWorld())).execute(object);
 		}
 	}
 }
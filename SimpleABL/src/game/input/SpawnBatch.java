@@ -0,0 +1,27 @@
+package game.input;
+
+import java.awt.event.KeyEvent;
+import java.util.Random;
+
+import game.BotSpawner;
+import game.GameEngine;
+
+public class SpawnBatch implements IInput {
+
+	public int triggerKeyCode = KeyEvent.VK_B;
+
+	/** bots added per keypress */
+	public int count = 100;
+
+	private BotSpawner spawner = new BotSpawner(new Random());
+
+	public SpawnBatch() {
+	}
+
+	@Override
+	public void process(GameEngine gameEngine, int keyCode) {
+		if(keyCode == this.triggerKeyCode) {
+			spawner.spawn(gameEngine.getWorld(), count);
+		}
+	}
+}
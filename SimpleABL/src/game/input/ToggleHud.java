@@ -0,0 +1,19 @@
+package game.input;
+
+import java.awt.event.KeyEvent;
+import game.GameEngine;
+
+public class ToggleHud implements IInput {
+
+	public int triggerKeyCode = KeyEvent.VK_H;
+
+	public ToggleHud() {
+	}
+
+	@Override
+	public void process(GameEngine gameEngine, int keyCode) {
+		if(keyCode == this.triggerKeyCode) {
+			gameEngine.getHud().setVisible(!gameEngine.getHud().isVisible());
+		}
+	}
+}